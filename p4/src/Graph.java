@@ -1,7 +1,11 @@
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
 
 
 /**
@@ -12,12 +16,16 @@ import java.util.Set;
 
 public class Graph implements GraphADT {
   private ArrayList<GraphNode> adjList;// adjacency list of verteces (GraphNodes)
+  private HashMap<String, Integer> indexMap;// vertex name -> position in adjList
+  private TreeSet<String> sortedNames;// vertex names in sorted order, for prefix queries
 
   /*
    * Default no-argument constructor
    */
   public Graph() {
     adjList = new ArrayList<GraphNode>();
+    indexMap = new HashMap<String, Integer>();
+    sortedNames = new TreeSet<String>();
   }
 
   /**
@@ -25,6 +33,7 @@ public class Graph implements GraphADT {
    */
   private class GraphNode {
     private ArrayList<String> dependencyList;// list of verteces that this node has edges to
+    private ArrayList<String> dependentList;// list of verteces that have edges to this node
     private String nodeName;// name of this node
 
     /**
@@ -35,6 +44,7 @@ public class Graph implements GraphADT {
     private GraphNode(String name) {
       nodeName = name;
       dependencyList = new ArrayList<String>();
+      dependentList = new ArrayList<String>();
     }
 
     private String getName() {// name getter
@@ -45,12 +55,12 @@ public class Graph implements GraphADT {
       return dependencyList;
     }
 
-    public String toString() {
-      return nodeName;
+    private ArrayList<String> getDependentList() {
+      return dependentList;
     }
 
-    private void addToDependencyList(ArrayList<String> list) {
-      dependencyList = list;
+    public String toString() {
+      return nodeName;
     }
   }
 
@@ -69,11 +79,11 @@ public class Graph implements GraphADT {
       return;
     }
     // check if vertex is already in graph
-    for (int i = 0; i < adjList.size(); i++) {
-      if (adjList.get(i).getName().equals(vertex))
-        return;
-    }
+    if (indexMap.containsKey(vertex))
+      return;
     // adds new vertex to graph
+    indexMap.put(vertex, adjList.size());
+    sortedNames.add(vertex);
     adjList.add(new GraphNode(vertex));
   }
 
@@ -91,14 +101,18 @@ public class Graph implements GraphADT {
     if (vertex == null)
       return;
 
-    for (int i = 0; i < adjList.size(); i++) {
-      if (adjList.get(i).getName().equals(vertex)) {
-        adjList.remove(i);// removed vertex from adjLists
-        for (int k = 0; k < adjList.size(); k++) {
-          adjList.get(k).dependencyList.remove(vertex);
-        }
-        break;
-      }
+    Integer index = indexMap.remove(vertex);
+    if (index == null)
+      return;
+    sortedNames.remove(vertex);
+    adjList.remove((int) index);// removed vertex from adjLists
+    for (int k = 0; k < adjList.size(); k++) {
+      adjList.get(k).dependencyList.remove(vertex);
+      adjList.get(k).dependentList.remove(vertex);
+    }
+    // verteces after the removed one shifted down by one
+    for (int k = index; k < adjList.size(); k++) {
+      indexMap.put(adjList.get(k).getName(), k);
     }
     // removed vertex and all instances of vertex in other graphnodes dependency lists
 
@@ -124,32 +138,15 @@ public class Graph implements GraphADT {
     else if (vertex1.equals(vertex2)) {// checks for self edge
       return;
     }
-    // check if verteces are in graph
-    ArrayList<String> nameHolder = new ArrayList<String>();
-    for (int i = 0; i < adjList.size(); i++) {
-      nameHolder.add(adjList.get(i).getName());
+    // add any missing verteces
+    addVertex(vertex1);
+    addVertex(vertex2);
+    ArrayList<String> dependencyList = adjList.get(indexMap.get(vertex1)).getDependencyList();
+    // check if edge already exists from v1 --> v2
+    if (!dependencyList.contains(vertex2)) {
+      dependencyList.add(vertex2);
+      adjList.get(indexMap.get(vertex2)).getDependentList().add(vertex1);
     }
-    // if the list doesn't contain either v1 or v2, return
-    if (!nameHolder.contains(vertex1) || !nameHolder.contains(vertex2))
-      return;
-
-    for (int i = 0; i < adjList.size(); i++) {
-      // if v1 is found in the adjList, store its index
-      if (adjList.get(i).getName().equals(vertex1)) {
-        // check if edge already exists from v1 --> v2
-        if (adjList.get(i).getDependencyList().contains(vertex2)) {
-          return; // edge already exists
-        } else {
-          // edge does not exist, create edge from v1 --> v2
-          ArrayList<String> temp = adjList.get(i).dependencyList;
-          temp.add(vertex2);
-          GraphNode tempNode = new GraphNode(vertex1);
-          tempNode.addToDependencyList(temp);
-          adjList.set(i, tempNode);
-        }
-      }
-    }
-
   }
 
   /**
@@ -167,36 +164,96 @@ public class Graph implements GraphADT {
     // checks that verteces are not null
     if (vertex1 == null || vertex2 == null)
       return;
-    // check if verteces are in graph
-    ArrayList<String> nameHolder = new ArrayList<String>();
-    for (int i = 0; i < adjList.size(); i++) {
-      nameHolder.add(adjList.get(i).getName());
-    }
-    // if the list doesn't contain either v1 or v2, return
-    if (!nameHolder.contains(vertex1) || !nameHolder.contains(vertex2))
+    // check if v1 is in graph
+    Integer index = indexMap.get(vertex1);
+    if (index == null)
       return;
-    for (int i = 0; i < adjList.size(); i++) {
-      // if v1 is found in the adjList, store its index
-      if (adjList.get(i).getName().equals(vertex1)) {
-        // check if edge already exists from v1 --> v2
-        if (adjList.get(i).getDependencyList().contains(vertex2)) {
-          adjList.get(i).dependencyList.remove(vertex2);// removes v2 from dependency list of v1
-        }
-      }
-    }
-
+    // removes v2 from dependency list of v1 and v1 from dependent list of v2
+    if (adjList.get(index).getDependencyList().remove(vertex2))
+      adjList.get(indexMap.get(vertex2)).getDependentList().remove(vertex1);
   }
 
   /**
    * Returns a Set that contains all the vertices
    * 
+   * The set is a sorted, read-only view that follows later changes to the graph. No copy is made,
+   * so iterating it while the graph changes throws ConcurrentModificationException and modifying
+   * it throws UnsupportedOperationException. Copy it to keep a snapshot; the view is a SortedSet,
+   * so new TreeSet<String>(view) copies it in linear time.
+   * 
    * @return a Set<String> which contains all the vertices in the graph
    */
   public Set<String> getAllVertices() {
-    Set<String> toReturn = new HashSet<>();
-    // iterate through adjList
-    for (int i = 0; i < adjList.size(); i++) {
-      toReturn.add(adjList.get(i).getName());
+    return Collections.unmodifiableSortedSet(sortedNames);
+  }
+
+  /**
+   * Checks whether a vertex is in the graph in constant time
+   * 
+   * @param vertex the specified vertex
+   * @return true if the vertex is in the graph
+   */
+  public boolean containsVertex(String vertex) {
+    return vertex != null && indexMap.containsKey(vertex);
+  }
+
+  /**
+   * Returns all verteces whose name starts with the given prefix, in sorted order. Only the
+   * matching range of the sorted index is visited.
+   * 
+   * @param prefix the name prefix, for example "@org/"
+   * @return List<String> of the matching verteces, empty if prefix is null
+   */
+  public List<String> getVerticesWithPrefix(String prefix) {
+    List<String> toReturn = new ArrayList<String>();
+    if (prefix == null)
+      return toReturn;
+    for (String name : sortedNames.tailSet(prefix, true)) {
+      if (!name.startsWith(prefix))
+        break;
+      toReturn.add(name);
+    }
+    return toReturn;
+  }
+
+  /**
+   * Returns all verteces whose name matches a glob pattern, in sorted order. '*' matches any
+   * number of characters and '?' matches exactly one. Only the range of the sorted index that
+   * shares the pattern's leading literal text is visited, so "libfoo-*" is as cheap as a prefix
+   * query.
+   * 
+   * @param glob the pattern, for example "@org/*" or "lib?-core"
+   * @return List<String> of the matching verteces, empty if glob is null
+   */
+  public List<String> getVerticesMatching(String glob) {
+    if (glob == null)
+      return new ArrayList<String>();
+    int wildcard = 0;
+    while (wildcard < glob.length() && glob.charAt(wildcard) != '*'
+        && glob.charAt(wildcard) != '?')
+      wildcard++;
+    if (wildcard == glob.length())
+      return containsVertex(glob) ? new ArrayList<String>(List.of(glob))
+          : new ArrayList<String>();
+    // translate the glob to a regex, quoting everything but the wildcards
+    StringBuilder regex = new StringBuilder();
+    int literal = 0;
+    for (int i = 0; i < glob.length(); i++) {
+      char c = glob.charAt(i);
+      if (c == '*' || c == '?') {
+        if (literal < i)
+          regex.append(Pattern.quote(glob.substring(literal, i)));
+        regex.append(c == '*' ? ".*" : ".");
+        literal = i + 1;
+      }
+    }
+    if (literal < glob.length())
+      regex.append(Pattern.quote(glob.substring(literal)));
+    Pattern pattern = Pattern.compile(regex.toString(), Pattern.DOTALL);
+    List<String> toReturn = new ArrayList<String>();
+    for (String name : getVerticesWithPrefix(glob.substring(0, wildcard))) {
+      if (pattern.matcher(name).matches())
+        toReturn.add(name);
     }
     return toReturn;
   }
@@ -213,12 +270,10 @@ public class Graph implements GraphADT {
    * @return an List<String> of all the adjacent vertices for specified vertex
    */
   public List<String> getAdjacentVerticesOf(String vertex) {
-    for (int i = 0; i < adjList.size(); i++) {
-      if (adjList.get(i).getName().equals(vertex)) {
-        return adjList.get(i).getDependencyList();
-      }
-    }
-    return null;
+    Integer index = indexMap.get(vertex);
+    if (index == null)
+      return null;
+    return adjList.get(index).getDependencyList();
   }
 
   /**
@@ -242,4 +297,232 @@ public class Graph implements GraphADT {
   public int order() {
     return adjList.size();
   }
+
+  /**
+   * Returns the position of a vertex in this graph. Positions run from 0 to order() - 1 and are
+   * stable until a vertex is removed.
+   * 
+   * @param vertex the specified vertex
+   * @return position of the vertex, or -1 if it is not in the graph
+   */
+  int indexOf(String vertex) {
+    if (vertex == null)
+      return -1;
+    Integer index = indexMap.get(vertex);
+    return index == null ? -1 : index;
+  }
+
+  /**
+   * Returns the name of the vertex at the given position.
+   * 
+   * @param index position of the vertex, see indexOf(String)
+   * @return name of the vertex
+   */
+  String vertexAt(int index) {
+    return adjList.get(index).getName();
+  }
+
+  /**
+   * Returns the dependency list of the vertex at the given position without copying it.
+   * 
+   * @param index position of the vertex, see indexOf(String)
+   * @return list of verteces the vertex has edges to
+   */
+  List<String> dependenciesAt(int index) {
+    return adjList.get(index).getDependencyList();
+  }
+
+  /**
+   * Returns the verteces with an edge to the vertex at the given position without copying them.
+   * 
+   * @param index position of the vertex, see indexOf(String)
+   * @return list of verteces that have edges to the vertex
+   */
+  List<String> dependentsAt(int index) {
+    return adjList.get(index).getDependentList();
+  }
+
+  /**
+   * Removes every edge that is implied by a longer path, so A->C is dropped when A->B->C exists.
+   * Which packages each package (transitively) depends on is unchanged, so every installation
+   * order stays valid.
+   * 
+   * Verteces on a common cycle are collapsed into one component first. Edges inside a component
+   * are kept, and between two components at most one edge is kept. Reachability between
+   * components is tracked with bitsets, computed for a block of target components at a time so
+   * memory stays bounded on large graphs.
+   * 
+   * @return number of edges removed
+   */
+  public int transitiveReduction() {
+    int n = adjList.size();
+    int[][] adjacency = new int[n][];
+    for (int v = 0; v < n; v++) {
+      ArrayList<String> dependencyList = adjList.get(v).getDependencyList();
+      adjacency[v] = new int[dependencyList.size()];
+      for (int i = 0; i < dependencyList.size(); i++) {
+        adjacency[v][i] = indexMap.get(dependencyList.get(i));
+      }
+    }
+    int[] component = new int[n];
+    int components = stronglyConnectedComponents(adjacency, component);
+
+    // members of each component
+    int[] memberStart = new int[components + 1];
+    for (int v = 0; v < n; v++) {
+      memberStart[component[v] + 1]++;
+    }
+    for (int c = 0; c < components; c++) {
+      memberStart[c + 1] += memberStart[c];
+    }
+    int[] members = new int[n];
+    int[] fill = Arrays.copyOf(memberStart, components);
+    for (int v = 0; v < n; v++) {
+      members[fill[component[v]]++] = v;
+    }
+
+    // distinct edges between components
+    int[] stamp = new int[components];
+    int[] succStart = new int[components + 1];
+    int[] succ = new int[size()];
+    int succCount = 0;
+    for (int c = 0; c < components; c++) {
+      succStart[c] = succCount;
+      for (int m = memberStart[c]; m < memberStart[c + 1]; m++) {
+        for (int v : adjacency[members[m]]) {
+          int d = component[v];
+          if (d != c && stamp[d] != c + 1) {
+            stamp[d] = c + 1;
+            succ[succCount++] = d;
+          }
+        }
+      }
+    }
+    succStart[components] = succCount;
+
+    // An edge c->d is redundant if d is reachable from another successor of c. Components are
+    // numbered so edges always go to a lower number, so one ascending pass per block suffices.
+    boolean[] redundant = new boolean[succCount];
+    int words = Math.max(1, Math.min((components + 63) / 64, (1 << 23) / Math.max(1, components)));
+    long[] reach = new long[components * words];// reach[c] restricted to the current block
+    long[] union = new long[words];
+    for (int base = 0; base < components; base += words * 64) {
+      int end = Math.min(components, base + words * 64);
+      for (int c = base; c < components; c++) {
+        Arrays.fill(union, 0);
+        for (int e = succStart[c]; e < succStart[c + 1]; e++) {
+          int d = succ[e];
+          if (d > base) {
+            for (int w = 0; w < words; w++) {
+              union[w] |= reach[d * words + w];
+            }
+          }
+        }
+        int row = c * words;
+        System.arraycopy(union, 0, reach, row, words);
+        for (int e = succStart[c]; e < succStart[c + 1]; e++) {
+          int d = succ[e];
+          if (d >= base && d < end) {
+            int bit = d - base;
+            if ((union[bit >>> 6] & (1L << bit)) != 0)
+              redundant[e] = true;
+            reach[row + (bit >>> 6)] |= 1L << bit;
+          }
+        }
+      }
+    }
+
+    // rebuild dependency lists, keeping one edge per remaining component pair
+    int[] allowed = new int[components];
+    int removed = 0;
+    Arrays.fill(stamp, 0);
+    for (int c = 0; c < components; c++) {
+      for (int e = succStart[c]; e < succStart[c + 1]; e++) {
+        if (!redundant[e])
+          allowed[succ[e]] = c + 1;
+      }
+      for (int m = memberStart[c]; m < memberStart[c + 1]; m++) {
+        int u = members[m];
+        ArrayList<String> kept = new ArrayList<String>(adjacency[u].length);
+        for (int v : adjacency[u]) {
+          int d = component[v];
+          if (d == c || (allowed[d] == c + 1 && stamp[d] != c + 1)) {
+            stamp[d] = c + 1;
+            kept.add(adjList.get(v).getName());
+          } else {
+            removed++;
+          }
+        }
+        adjList.get(u).dependencyList = kept;
+      }
+    }
+    if (removed > 0) {
+      for (int v = 0; v < n; v++) {
+        adjList.get(v).getDependentList().clear();
+      }
+      for (int u = 0; u < n; u++) {
+        for (String depend : adjList.get(u).getDependencyList()) {
+          adjList.get(indexMap.get(depend)).getDependentList().add(adjList.get(u).getName());
+        }
+      }
+    }
+    return removed;
+  }
+
+  /*
+   * Iterative Tarjan's algorithm. Components are numbered in the order they complete, so every
+   * edge between two components goes from a higher to a lower number.
+   * 
+   * @param adjacency - dependency indices of every vertex
+   * @param component - filled with the component number of every vertex
+   * @return number of components
+   */
+  static int stronglyConnectedComponents(int[][] adjacency, int[] component) {
+    int n = adjacency.length;
+    int[] index = new int[n];// discovery order + 1, 0 if undiscovered
+    int[] low = new int[n];
+    int[] cursor = new int[n];
+    int[] callStack = new int[n];
+    int[] sccStack = new int[n];
+    boolean[] onStack = new boolean[n];
+    int counter = 0, components = 0, sccTop = 0;
+    for (int root = 0; root < n; root++) {
+      if (index[root] != 0)
+        continue;
+      int top = 0;
+      callStack[0] = root;
+      index[root] = low[root] = ++counter;
+      sccStack[sccTop++] = root;
+      onStack[root] = true;
+      while (top >= 0) {
+        int v = callStack[top];
+        if (cursor[v] < adjacency[v].length) {
+          int w = adjacency[v][cursor[v]++];
+          if (index[w] == 0) {
+            index[w] = low[w] = ++counter;
+            sccStack[sccTop++] = w;
+            onStack[w] = true;
+            callStack[++top] = w;
+          } else if (onStack[w]) {
+            low[v] = Math.min(low[v], index[w]);
+          }
+        } else {
+          if (low[v] == index[v]) {
+            // v is the root of a component, pop it off
+            int w;
+            do {
+              w = sccStack[--sccTop];
+              onStack[w] = false;
+              component[w] = components;
+            } while (w != v);
+            components++;
+          }
+          top--;
+          if (top >= 0)
+            low[callStack[top]] = Math.min(low[callStack[top]], low[v]);
+        }
+      }
+    }
+    return components;
+  }
 }
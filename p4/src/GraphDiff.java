@@ -0,0 +1,411 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Filename: GraphDiff.java Project: p4 Authors: Elijah Asher
+ *
+ * Differences between two versions of a dependency graph: packages added and removed, direct
+ * dependencies added and removed, and the packages whose transitive dependencies grew or shrank.
+ *
+ * Every package is compared once by its direct dependencies. Changes to transitive dependencies
+ * are then propagated from the changed packages to the packages depending on them, and stop at
+ * any package whose transitive dependencies came out the same. Only a package whose own
+ * dependencies changed walks its old closure, once; every other package is checked against the
+ * few packages its dependencies gained.
+ *
+ * The returned sets and maps are read-only.
+ */
+public class GraphDiff {
+  private Set<String> addedPackages;// packages only in the new graph
+  private Set<String> removedPackages;// packages only in the old graph
+  private Map<String, List<String>> addedDependencies;// package -> direct dependencies gained
+  private Map<String, List<String>> removedDependencies;// package -> direct dependencies lost
+  private Set<String> grownClosures;// packages in both graphs that gained transitive dependencies
+  private Set<String> shrunkClosures;// packages in both graphs that lost transitive dependencies
+
+  /**
+   * Constructor, compares the two graphs. Neither graph may change while it runs.
+   *
+   * @param before - old version of the graph
+   * @param after  - new version of the graph
+   */
+  public GraphDiff(Graph before, Graph after) {
+    addedPackages = new LinkedHashSet<String>();
+    removedPackages = new LinkedHashSet<String>();
+    addedDependencies = new HashMap<String, List<String>>();
+    removedDependencies = new HashMap<String, List<String>>();
+    TraversalWorkspace workspace =
+        TraversalWorkspace.acquire(Math.max(before.order(), after.order()));
+    try {
+      List<String> changed = compareDependencies(workspace, before, after);
+      grownClosures = growing(workspace, before, after, changed);
+      shrunkClosures = growing(workspace, after, before, changed);
+    } finally {
+      workspace.release();
+    }
+  }
+
+  public Set<String> getAddedPackages() {
+    return Collections.unmodifiableSet(addedPackages);
+  }
+
+  public Set<String> getRemovedPackages() {
+    return Collections.unmodifiableSet(removedPackages);
+  }
+
+  public Map<String, List<String>> getAddedDependencies() {
+    return Collections.unmodifiableMap(addedDependencies);
+  }
+
+  public Map<String, List<String>> getRemovedDependencies() {
+    return Collections.unmodifiableMap(removedDependencies);
+  }
+
+  public Set<String> getGrownClosures() {
+    return Collections.unmodifiableSet(grownClosures);
+  }
+
+  public Set<String> getShrunkClosures() {
+    return Collections.unmodifiableSet(shrunkClosures);
+  }
+
+  /**
+   * Returns true if the two graphs have the same packages and dependencies
+   *
+   * @return whether nothing changed
+   */
+  public boolean isEmpty() {
+    return addedPackages.isEmpty() && removedPackages.isEmpty() && addedDependencies.isEmpty()
+        && removedDependencies.isEmpty();
+  }
+
+  /**
+   * Finds added and removed packages and compares the direct dependencies of every package in
+   * both graphs.
+   *
+   * @return names of the packages that were added, removed or whose direct dependencies changed
+   */
+  private List<String> compareDependencies(TraversalWorkspace workspace, Graph before,
+      Graph after) {
+    List<String> changed = new ArrayList<String>();
+    for (int a = 0; a < after.order(); a++) {
+      String pkg = after.vertexAt(a);
+      int b = before.indexOf(pkg);
+      if (b < 0) {
+        addedPackages.add(pkg);
+        changed.add(pkg);
+        continue;
+      }
+      List<String> oldList = before.dependenciesAt(b);
+      List<String> newList = after.dependenciesAt(a);
+      // mark new dependencies by their index in after, old ones by their index in before
+      workspace.nextEpoch();
+      for (int i = 0; i < newList.size(); i++) {
+        workspace.visit(after.indexOf(newList.get(i)));
+      }
+      for (int i = 0; i < oldList.size(); i++) {
+        workspace.backVisit(before.indexOf(oldList.get(i)));
+      }
+      List<String> gained = null;
+      List<String> lost = null;
+      for (int i = 0; i < newList.size(); i++) {
+        int index = before.indexOf(newList.get(i));
+        if (index < 0 || !workspace.isBackVisited(index)) {
+          if (gained == null)
+            gained = new ArrayList<String>();
+          gained.add(newList.get(i));
+        }
+      }
+      for (int i = 0; i < oldList.size(); i++) {
+        int index = after.indexOf(oldList.get(i));
+        if (index < 0 || !workspace.isVisited(index)) {
+          if (lost == null)
+            lost = new ArrayList<String>();
+          lost.add(oldList.get(i));
+        }
+      }
+      if (gained != null)
+        addedDependencies.put(pkg, gained);
+      if (lost != null)
+        removedDependencies.put(pkg, lost);
+      if (gained != null || lost != null)
+        changed.add(pkg);
+    }
+    for (int b = 0; b < before.order(); b++) {
+      String pkg = before.vertexAt(b);
+      if (after.indexOf(pkg) < 0) {
+        removedPackages.add(pkg);
+        changed.add(pkg);
+      }
+    }
+    return changed;
+  }
+
+  /**
+   * Finds the packages in both graphs that have transitive dependencies in to that they do not
+   * have in from. Called once in each direction to find grown and shrunk closures.
+   * 
+   * Only packages that reach a changed package in to can be affected. They are processed per
+   * strongly connected component, dependencies first, and each one records the set of packages it
+   * gained (its delta) for the packages depending on it. A package whose delta is empty passes
+   * nothing on.
+   * 
+   * A package with the same direct dependencies in both graphs can only gain what its
+   * dependencies gained. Of those, the ones it already reached in from are dropped, each checked
+   * with a bidirectional search in from.
+   * 
+   * A package whose direct dependencies changed, or that is part of a cycle, first marks what it
+   * reached in from, in one walk. It then walks its dependencies in to, but only through packages
+   * it did not reach before: at a marked package the walk stops and takes that package's delta
+   * instead, so a redundant new edge costs no more than the walk of the old closure.
+   * 
+   * @return names of the packages whose closure grew from from to to
+   */
+  private static Set<String> growing(TraversalWorkspace workspace, Graph from, Graph to,
+      List<String> changed) {
+    Set<String> grown = new LinkedHashSet<String>();
+    int[] affected = ancestors(workspace, to, changed);
+    int m = affected.length;
+    if (m == 0)
+      return grown;
+    // dependency lists restricted to the affected packages, by position in affected
+    HashMap<Integer, Integer> local = new HashMap<Integer, Integer>(m * 2);
+    for (int i = 0; i < m; i++) {
+      local.put(affected[i], i);
+    }
+    int[][] adjacency = new int[m][];
+    for (int i = 0; i < m; i++) {
+      List<String> dependencyList = to.dependenciesAt(affected[i]);
+      int[] row = new int[dependencyList.size()];
+      int size = 0;
+      for (int k = 0; k < dependencyList.size(); k++) {
+        Integer index = local.get(to.indexOf(dependencyList.get(k)));
+        if (index != null)
+          row[size++] = index;
+      }
+      adjacency[i] = Arrays.copyOf(row, size);
+    }
+    int[] component = new int[m];
+    int components = Graph.stronglyConnectedComponents(adjacency, component);
+    int[] memberStart = new int[components + 1];
+    for (int i = 0; i < m; i++) {
+      memberStart[component[i] + 1]++;
+    }
+    for (int c = 0; c < components; c++) {
+      memberStart[c + 1] += memberStart[c];
+    }
+    int[] members = new int[m];
+    int[] fill = Arrays.copyOf(memberStart, components);
+    for (int i = 0; i < m; i++) {
+      members[fill[component[i]]++] = affected[i];
+    }
+
+    Set<String> direct = new HashSet<String>(changed);
+    HashMap<Integer, int[]> gained = new HashMap<Integer, int[]>();// package -> its delta
+    // components are numbered dependencies first
+    for (int c = 0; c < components; c++) {
+      int first = memberStart[c];
+      int last = memberStart[c + 1];
+      for (int i = first; i < last; i++) {
+        int pkg = members[i];
+        String name = to.vertexAt(pkg);
+        int pkgFrom = from.indexOf(name);
+        if (pkgFrom < 0)
+          continue;// only in to, its dependents reach it through new edges anyway
+        int[] delta;
+        if (last - first == 1 && !direct.contains(name))
+          delta = inheritedDelta(workspace, from, to, pkg, pkgFrom, gained);
+        else
+          delta = walkedDelta(workspace, from, to, pkg, pkgFrom, members, first, last, gained);
+        if (delta.length > 0) {
+          gained.put(pkg, delta);
+          grown.add(name);
+        }
+      }
+    }
+    return grown;
+  }
+
+  /*
+   * Delta of a package with unchanged direct dependencies: what its dependencies gained, less
+   * what it already reached in from
+   */
+  private static int[] inheritedDelta(TraversalWorkspace workspace, Graph from, Graph to,
+      int pkg, int pkgFrom, HashMap<Integer, int[]> gained) {
+    workspace.nextEpoch();
+    List<String> dependencyList = to.dependenciesAt(pkg);
+    for (int k = 0; k < dependencyList.size(); k++) {
+      int[] more = gained.get(to.indexOf(dependencyList.get(k)));
+      if (more == null)
+        continue;
+      for (int candidate : more) {
+        if (!workspace.isVisited(candidate)) {
+          workspace.visit(candidate);
+          workspace.output[workspace.outputSize++] = candidate;
+        }
+      }
+    }
+    int[] candidates = Arrays.copyOf(workspace.output, workspace.outputSize);
+    int size = 0;
+    for (int candidate : candidates) {
+      int target = from.indexOf(to.vertexAt(candidate));
+      if (target < 0 || !reachedInFrom(workspace, from, pkgFrom, target))
+        candidates[size++] = candidate;
+    }
+    return Arrays.copyOf(candidates, size);
+  }
+
+  /*
+   * Delta of a package whose direct dependencies changed or that is part of a cycle. The members
+   * of its component are walked together, since each of them reaches all the others in to.
+   */
+  private static int[] walkedDelta(TraversalWorkspace workspace, Graph from, Graph to, int pkg,
+      int pkgFrom, int[] members, int first, int last, HashMap<Integer, int[]> gained) {
+    workspace.nextEpoch();
+    markClosure(workspace, from, to, pkgFrom);
+    int[] queue = workspace.queue;
+    int tail = 0;
+    for (int i = first; i < last; i++) {
+      int member = members[i];
+      workspace.visit(member);
+      if (!workspace.isEntered(member) && member != pkg)
+        workspace.output[workspace.outputSize++] = member;
+      queue[tail++] = member;
+    }
+    for (int head = 0; head < tail; head++) {
+      List<String> dependencyList = to.dependenciesAt(queue[head]);
+      for (int k = 0; k < dependencyList.size(); k++) {
+        int index = to.indexOf(dependencyList.get(k));
+        if (workspace.isVisited(index))
+          continue;
+        workspace.visit(index);
+        if (!workspace.isEntered(index)) {
+          // not reached before, it and everything below it may be new
+          if (index != pkg)
+            workspace.output[workspace.outputSize++] = index;
+          queue[tail++] = index;
+          continue;
+        }
+        // reached before, so anything new below it is in its delta
+        int[] more = gained.get(index);
+        if (more == null)
+          continue;
+        for (int candidate : more) {
+          if (!workspace.isVisited(candidate) && !workspace.isEntered(candidate)) {
+            workspace.visit(candidate);
+            if (candidate != pkg)
+              workspace.output[workspace.outputSize++] = candidate;
+          }
+        }
+      }
+    }
+    return Arrays.copyOf(workspace.output, workspace.outputSize);
+  }
+
+  /*
+   * Marks, by their index in to, the packages that pkgFrom depended on in from. Packages that are
+   * gone from to are walked through but cannot be marked there, so they are tracked on the side.
+   */
+  private static void markClosure(TraversalWorkspace workspace, Graph from, Graph to,
+      int pkgFrom) {
+    Set<Integer> removed = new HashSet<Integer>();
+    int[] queue = workspace.backQueue;
+    int tail = 0;
+    queue[tail++] = pkgFrom;
+    for (int head = 0; head < tail; head++) {
+      List<String> dependencyList = from.dependenciesAt(queue[head]);
+      for (int k = 0; k < dependencyList.size(); k++) {
+        String dependency = dependencyList.get(k);
+        int index = to.indexOf(dependency);
+        if (index >= 0 ? workspace.isEntered(index) : !removed.add(from.indexOf(dependency)))
+          continue;
+        if (index >= 0)
+          workspace.enter(index);
+        queue[tail++] = from.indexOf(dependency);
+      }
+    }
+  }
+
+  /**
+   * Collects every package of the graph that depends, directly or not, on a changed package, the
+   * changed packages included.
+   * 
+   * @return indices of the packages in graph
+   */
+  private static int[] ancestors(TraversalWorkspace workspace, Graph graph, List<String> changed) {
+    workspace.nextEpoch();
+    int[] queue = workspace.queue;
+    int tail = 0;
+    for (String pkg : changed) {
+      int index = graph.indexOf(pkg);
+      if (index >= 0 && !workspace.isVisited(index)) {
+        workspace.visit(index);
+        queue[tail++] = index;
+      }
+    }
+    for (int head = 0; head < tail; head++) {
+      List<String> dependentList = graph.dependentsAt(queue[head]);
+      for (int i = 0; i < dependentList.size(); i++) {
+        int index = graph.indexOf(dependentList.get(i));
+        if (!workspace.isVisited(index)) {
+          workspace.visit(index);
+          queue[tail++] = index;
+        }
+      }
+    }
+    return Arrays.copyOf(queue, tail);
+  }
+
+  /*
+   * Checks whether source depends, directly or not, on target in from. Searches forward from
+   * source and backward from target at the same time, always growing the side that has seen fewer
+   * packages, and stops as soon as either side runs out.
+   */
+  private static boolean reachedInFrom(TraversalWorkspace workspace, Graph from, int source,
+      int target) {
+    workspace.nextEpoch();
+    int[] queue = workspace.queue;
+    int[] backQueue = workspace.backQueue;
+    int head = 0;
+    int tail = 0;
+    int backHead = 0;
+    int backTail = 0;
+    workspace.visit(source);
+    queue[tail++] = source;
+    workspace.backVisit(target);
+    backQueue[backTail++] = target;
+    while (head < tail && backHead < backTail) {
+      if (tail <= backTail) {
+        List<String> dependencyList = from.dependenciesAt(queue[head++]);
+        for (int i = 0; i < dependencyList.size(); i++) {
+          int index = from.indexOf(dependencyList.get(i));
+          if (workspace.isBackVisited(index))
+            return true;
+          if (!workspace.isVisited(index)) {
+            workspace.visit(index);
+            queue[tail++] = index;
+          }
+        }
+      } else {
+        List<String> dependentList = from.dependentsAt(backQueue[backHead++]);
+        for (int i = 0; i < dependentList.size(); i++) {
+          int index = from.indexOf(dependentList.get(i));
+          if (workspace.isVisited(index))
+            return true;
+          if (!workspace.isBackVisited(index)) {
+            workspace.backVisit(index);
+            backQueue[backTail++] = index;
+          }
+        }
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,123 @@
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+/**
+ * Filename: GraphDiffTest.java Project: p4 Authors: Elijah Asher
+ * 
+ * Tests GraphDiff on two versions of a small graph: A -> B -> C, D -> C and E on its own.
+ */
+class GraphDiffTest {
+  Graph before;
+  Graph after;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    before = build();
+    after = build();
+  }
+
+  private static Graph build() {
+    Graph graph = new Graph();
+    graph.addEdge("A", "B");
+    graph.addEdge("B", "C");
+    graph.addEdge("D", "C");
+    graph.addVertex("E");
+    return graph;
+  }
+
+  @Test
+  void test_IdenticalGraphs() {
+    GraphDiff diff = new GraphDiff(before, after);
+    assertTrue(diff.isEmpty());
+    assertTrue(diff.getGrownClosures().isEmpty());
+    assertTrue(diff.getShrunkClosures().isEmpty());
+  }
+
+  @Test
+  void test_ChangedDependencyPropagatesToAncestors() {
+    after.addEdge("B", "F");
+    after.removeEdge("D", "C");
+    GraphDiff diff = new GraphDiff(before, after);
+    assertEquals(List.of("F"), List.copyOf(diff.getAddedPackages()));
+    assertEquals(List.of("F"), diff.getAddedDependencies().get("B"));
+    assertEquals(List.of("C"), diff.getRemovedDependencies().get("D"));
+    // A and B now pull in F, D no longer pulls in C, E is untouched
+    assertEquals(List.of("B", "A"), List.copyOf(diff.getGrownClosures()));
+    assertEquals(List.of("D"), List.copyOf(diff.getShrunkClosures()));
+  }
+
+  @Test
+  void test_ImpliedEdgeLeavesClosuresAlone() {
+    after.addEdge("A", "C");// already reachable through B
+    after.removeVertex("E");
+    GraphDiff diff = new GraphDiff(before, after);
+    assertEquals(List.of("E"), List.copyOf(diff.getRemovedPackages()));
+    assertEquals(List.of("C"), diff.getAddedDependencies().get("A"));
+    assertTrue(diff.getGrownClosures().isEmpty());
+    assertTrue(diff.getShrunkClosures().isEmpty());
+  }
+
+  @Test
+  @Timeout(value = 10, unit = TimeUnit.SECONDS)
+  void test_DeepChainIsLinear() {
+    // a change at the bottom of a long chain reaches every package above it; recomputing each
+    // closure would take minutes at this size
+    int n = 50000;
+    before = new Graph();
+    after = new Graph();
+    for (int i = 0; i + 1 < n; i++) {
+      before.addEdge("p" + i, "p" + (i + 1));
+      after.addEdge("p" + i, "p" + (i + 1));
+    }
+    before.addVertex("leaf");
+    after.addEdge("p" + (n - 1), "leaf");
+    after.addEdge("p" + (n - 1), "extra");
+    GraphDiff diff = new GraphDiff(before, after);
+    assertEquals(n, diff.getGrownClosures().size());
+    assertTrue(diff.getShrunkClosures().isEmpty());
+    // and back again
+    diff = new GraphDiff(after, before);
+    assertEquals(n, diff.getShrunkClosures().size());
+    assertTrue(diff.getGrownClosures().isEmpty());
+  }
+
+  @Test
+  @Timeout(value = 10, unit = TimeUnit.SECONDS)
+  void test_RedundantEdgeAtTopOfDeepChain() {
+    // the new edge only reaches what root already reached; seeding candidates from the whole
+    // chain below it and checking each one would be quadratic
+    int n = 50000;
+    before = new Graph();
+    after = new Graph();
+    before.addEdge("root", "p0");
+    after.addEdge("root", "p0");
+    for (int i = 0; i + 1 < n; i++) {
+      before.addEdge("p" + i, "p" + (i + 1));
+      after.addEdge("p" + i, "p" + (i + 1));
+    }
+    after.addEdge("root", "p1");
+    GraphDiff diff = new GraphDiff(before, after);
+    assertEquals(List.of("p1"), diff.getAddedDependencies().get("root"));
+    assertTrue(diff.getGrownClosures().isEmpty());
+    assertTrue(diff.getShrunkClosures().isEmpty());
+    // a new edge that does reach something new only grows the packages above it
+    after.addEdge("p1", "extra");
+    diff = new GraphDiff(before, after);
+    assertEquals(Set.of("root", "p0", "p1"), diff.getGrownClosures());
+  }
+
+  @Test
+  void test_ResultsAreReadOnly() {
+    after.addEdge("E", "A");
+    GraphDiff diff = new GraphDiff(before, after);
+    assertThrows(UnsupportedOperationException.class, () -> diff.getGrownClosures().clear());
+    assertThrows(UnsupportedOperationException.class,
+        () -> diff.getAddedDependencies().remove("E"));
+    assertThrows(UnsupportedOperationException.class, () -> diff.getAddedPackages().add("Z"));
+  }
+}
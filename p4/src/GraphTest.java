@@ -1,6 +1,8 @@
 
 
 import static org.junit.jupiter.api.Assertions.*;
+import java.util.List;
+import java.util.SortedSet;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
@@ -86,4 +88,63 @@ class GraphTest {
       fail("GetAllVerteces does not return the correct value");
   }
 
+
+  @Test
+  void test_RemoveVertexKeepsEdges() {
+    graph.addEdge("4", "5");
+    graph.addEdge("5", "0");
+    graph.removeVertex("1");
+    // verteces after the removed one are still reachable by name
+    assertEquals(verteces - 1, graph.order());
+    assertEquals(1, graph.getAdjacentVerticesOf("4").size());
+    assertEquals("0", graph.getAdjacentVerticesOf("5").get(0));
+    assertNull(graph.getAdjacentVerticesOf("1"));
+  }
+
+  @Test
+  void test_TransitiveReductionDropsImpliedEdges() {
+    graph.addEdge("0", "1");
+    graph.addEdge("1", "2");
+    graph.addEdge("0", "2");// implied by 0 -> 1 -> 2
+    graph.addEdge("2", "3");
+    graph.addEdge("0", "3");// implied by 0 -> 1 -> 2 -> 3
+    assertEquals(2, graph.transitiveReduction());
+    assertEquals(3, graph.size());
+    assertEquals(1, graph.getAdjacentVerticesOf("0").size());
+    assertEquals(0, graph.transitiveReduction());
+  }
+
+  @Test
+  void test_TransitiveReductionKeepsCycles() {
+    graph.addEdge("0", "1");
+    graph.addEdge("1", "0");
+    graph.addEdge("0", "2");
+    graph.addEdge("1", "2");// 2 is already reachable through the cycle
+    assertEquals(1, graph.transitiveReduction());
+    assertEquals(3, graph.size());
+    assertTrue(graph.getAdjacentVerticesOf("0").contains("1"));
+    assertTrue(graph.getAdjacentVerticesOf("1").contains("0"));
+  }
+
+  @Test
+  void test_PrefixAndPatternLookup() {
+    graph.addVertex("@org/core");
+    graph.addVertex("@org/util");
+    graph.addVertex("@other/core");
+    graph.addVertex("libfoo-1");
+    graph.addVertex("libfoo-10");
+    assertTrue(graph.containsVertex("@org/util"));
+    assertFalse(graph.containsVertex("@org"));
+    assertEquals(List.of("@org/core", "@org/util"), graph.getVerticesWithPrefix("@org/"));
+    assertEquals(List.of("@org/core", "@org/util"), graph.getVerticesMatching("@org/*"));
+    assertEquals(List.of("libfoo-1"), graph.getVerticesMatching("libfoo-?"));
+    assertEquals(List.of("@org/core", "@other/core"), graph.getVerticesMatching("*/core"));
+    graph.removeVertex("@org/core");
+    assertEquals(List.of("@org/util"), graph.getVerticesWithPrefix("@org/"));
+    assertFalse(graph.containsVertex("@org/core"));
+    assertTrue(graph.getVerticesWithPrefix(null).isEmpty());
+    assertTrue(graph.getVerticesMatching(null).isEmpty());
+    // sorted, so copying it into a TreeSet takes the linear path
+    assertTrue(graph.getAllVertices() instanceof SortedSet);
+  }
 }
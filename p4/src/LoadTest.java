@@ -0,0 +1,289 @@
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.ParseException;
+
+/**
+ * Filename: LoadTest.java Project: p4 Authors: Elijah Asher
+ *
+ * End to end load test. Generates a registry with RegistryGenerator, loads it into a
+ * PackageManager and runs a mixed query workload from many threads for a fixed time. Prints a json
+ * report with latency percentiles per query type, throughput and the highest heap usage sampled
+ * during the run.
+ *
+ * Usage: java LoadTest [key=value ...]
+ *
+ * packages=N - registry size (default 20000)
+ *
+ * registry=FILE - load this registry instead of generating one, for example a fixture written by
+ * RegistryGenerator
+ *
+ * threads=N - concurrent query threads (default number of processors)
+ *
+ * seconds=N - length of the measured run (default 10)
+ *
+ * cycles=N - cycles injected into the registry (default 5)
+ *
+ * seed=N - seed of the registry and the workload (default 1)
+ *
+ * out=FILE - also write the report to FILE
+ *
+ * sloP99Ms=X - exit with status 1 if the overall p99 latency exceeds X milliseconds
+ */
+public class LoadTest {
+  // query types of the workload and how often each one is picked, out of 100
+  private static final String[] QUERIES = {"installationOrder", "toInstall", "explainDependency",
+      "depthLimitedOrder"};
+  private static final int[] WEIGHTS = {60, 20, 10, 10};
+
+  private PackageManager manager;// system under test
+  private String[] names;// every package, for picking query arguments
+  private long seed;// seed of the workload
+
+  /**
+   * Constructor
+   *
+   * @param manager - package manager with its graph already constructed
+   * @param seed    - seed of the workload
+   */
+  public LoadTest(PackageManager manager, long seed) {
+    this.manager = manager;
+    this.names = manager.getAllPackages().toArray(new String[0]);
+    Arrays.sort(names);
+    this.seed = seed;
+  }
+
+  /**
+   * Runs the workload and collects latencies.
+   *
+   * @param threads - number of concurrent query threads
+   * @param millis  - length of the measured run
+   * @return report with one entry per query type, one for all queries and the run totals
+   * @throws InterruptedException if interrupted while waiting for the threads
+   */
+  @SuppressWarnings("unchecked")
+  public JSONObject run(int threads, long millis) throws InterruptedException {
+    long[][][] latencies = new long[threads][][];
+    int[][] counts = new int[threads][QUERIES.length];
+    AtomicLong errors = new AtomicLong();// cycles reached by a query
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> workers = new ArrayList<Thread>();
+    long[] bounds = new long[2];// start and end of the run, set once all threads are ready
+    for (int t = 0; t < threads; t++) {
+      int id = t;
+      latencies[t] = new long[QUERIES.length][1024];
+      Thread worker = new Thread(() -> {
+        Random random = new Random(seed + id);
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          return;
+        }
+        while (System.nanoTime() < bounds[1]) {
+          int query = pickQuery(random);
+          long begin = System.nanoTime();
+          if (!runQuery(query, random))
+            errors.incrementAndGet();
+          long elapsed = System.nanoTime() - begin;
+          long[] samples = latencies[id][query];
+          if (counts[id][query] == samples.length)
+            samples = latencies[id][query] = Arrays.copyOf(samples, samples.length * 2);
+          samples[counts[id][query]++] = elapsed;
+        }
+      }, "load-" + t);
+      workers.add(worker);
+      worker.start();
+    }
+    bounds[0] = System.nanoTime();
+    bounds[1] = bounds[0] + millis * 1_000_000L;
+    start.countDown();
+    // sample the heap while the workers run, pool peaks would add up peaks of different moments
+    MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    long peakHeap = memory.getHeapMemoryUsage().getUsed();
+    for (Thread worker : workers) {
+      while (worker.isAlive()) {
+        worker.join(10);
+        peakHeap = Math.max(peakHeap, memory.getHeapMemoryUsage().getUsed());
+      }
+    }
+    double seconds = (System.nanoTime() - bounds[0]) / 1e9;
+
+    JSONObject report = new JSONObject();
+    List<long[]> all = new ArrayList<long[]>();
+    int total = 0;
+    for (int q = 0; q < QUERIES.length; q++) {
+      int size = 0;
+      for (int t = 0; t < threads; t++) {
+        size += counts[t][q];
+      }
+      long[] merged = new long[size];
+      int at = 0;
+      for (int t = 0; t < threads; t++) {
+        System.arraycopy(latencies[t][q], 0, merged, at, counts[t][q]);
+        at += counts[t][q];
+      }
+      all.add(merged);
+      total += size;
+      report.put(QUERIES[q], summarize(merged, seconds));
+    }
+    long[] merged = new long[total];
+    int at = 0;
+    for (long[] samples : all) {
+      System.arraycopy(samples, 0, merged, at, samples.length);
+      at += samples.length;
+    }
+    report.put("all", summarize(merged, seconds));
+    report.put("threads", threads);
+    report.put("seconds", seconds);
+    report.put("cycleErrors", errors.get());
+    report.put("peakHeapBytes", peakHeap);
+    return report;
+  }
+
+  /*
+   * Picks a query type according to WEIGHTS
+   */
+  private static int pickQuery(Random random) {
+    int roll = random.nextInt(100);
+    for (int q = 0; q < WEIGHTS.length; q++) {
+      roll -= WEIGHTS[q];
+      if (roll < 0)
+        return q;
+    }
+    return 0;
+  }
+
+  /*
+   * Runs one query on random packages, returns false if it ran into a cycle
+   */
+  private boolean runQuery(int query, Random random) {
+    String pkg = names[random.nextInt(names.length)];
+    try {
+      switch (query) {
+        case 0:
+          manager.getInstallationOrder(pkg);
+          break;
+        case 1:
+          manager.toInstall(pkg, names[random.nextInt(names.length)]);
+          break;
+        case 2:
+          manager.explainDependency(pkg, names[random.nextInt(names.length)]);
+          break;
+        default:
+          manager.getInstallationOrder(pkg, new TraversalOptions().setMaxDepth(3));
+      }
+      return true;
+    } catch (CycleException e) {
+      return false;
+    } catch (PackageNotFoundException e) {
+      throw new IllegalStateException("package from the registry not found: " + pkg);
+    }
+  }
+
+  /*
+   * Latency percentiles in milliseconds and throughput of one set of samples
+   */
+  @SuppressWarnings("unchecked")
+  private static JSONObject summarize(long[] samples, double seconds) {
+    Arrays.sort(samples);
+    JSONObject summary = new JSONObject();
+    summary.put("count", samples.length);
+    summary.put("throughputPerSecond", samples.length / seconds);
+    summary.put("p50Ms", percentile(samples, 0.50));
+    summary.put("p99Ms", percentile(samples, 0.99));
+    summary.put("p999Ms", percentile(samples, 0.999));
+    summary.put("maxMs", samples.length == 0 ? 0.0 : samples[samples.length - 1] / 1e6);
+    return summary;
+  }
+
+  /*
+   * Nearest rank percentile of sorted samples, in milliseconds
+   */
+  private static double percentile(long[] sorted, double fraction) {
+    if (sorted.length == 0)
+      return 0.0;
+    int rank = (int) Math.ceil(fraction * sorted.length) - 1;
+    return sorted[Math.max(0, rank)] / 1e6;
+  }
+
+  /*
+   * Generates a registry of the given size, seeded from the fixtures in the working directory.
+   * About an eighth each goes to deep chains, wide diamonds, copies of shared_dependencies.json and
+   * copies of valid.json, plus one copy of cyclic.json per cycle. The power law block on top takes
+   * whatever is left, so the total comes out exact unless packages is very small.
+   */
+  static RegistryGenerator generate(int packages, int cycles, long seed)
+      throws IOException, ParseException {
+    RegistryGenerator generator = new RegistryGenerator(seed);
+    for (int chains = 0; chains < 4; chains++) {
+      generator.addChain(Math.max(1, packages / 32));
+    }
+    generator.addDiamonds(16, Math.max(1, packages / 128));
+    generator.addFixture("shared_dependencies.json", Math.max(1, packages / 32));
+    generator.addFixture("valid.json", Math.max(1, packages / 40));
+    generator.addFixture("cyclic.json", cycles);
+    generator.addPowerLaw(Math.max(1, packages - generator.getPackages().size()), 200);
+    return generator.addCycles(cycles);
+  }
+
+  @SuppressWarnings("unchecked")
+  public static void main(String[] args) throws Exception {
+    Map<String, String> options = new HashMap<String, String>();
+    for (String arg : args) {
+      int split = arg.indexOf('=');
+      if (split < 0)
+        throw new IllegalArgumentException("expected key=value, got " + arg);
+      options.put(arg.substring(0, split), arg.substring(split + 1));
+    }
+    int packages = Integer.parseInt(options.getOrDefault("packages", "20000"));
+    int threads = Integer.parseInt(options.getOrDefault("threads",
+        "" + Runtime.getRuntime().availableProcessors()));
+    long seconds = Long.parseLong(options.getOrDefault("seconds", "10"));
+    int cycles = Integer.parseInt(options.getOrDefault("cycles", "5"));
+    long seed = Long.parseLong(options.getOrDefault("seed", "1"));
+
+    String registry = options.get("registry");
+    if (registry == null) {
+      File generated = File.createTempFile("registry", ".json");
+      generated.deleteOnExit();
+      generate(packages, cycles, seed).write(generated.getPath());
+      registry = generated.getPath();
+    }
+    PackageManager manager = new PackageManager();
+    long begin = System.nanoTime();
+    manager.constructGraph(registry);
+    double loadMs = (System.nanoTime() - begin) / 1e6;
+
+    // short warm up so the measured run sees compiled code
+    new LoadTest(manager, seed + 1000).run(threads, Math.min(2000, seconds * 200));
+    JSONObject report = new LoadTest(manager, seed).run(threads, seconds * 1000);
+    report.put("packages", manager.getAllPackages().size());
+    report.put("loadMs", loadMs);
+    boolean sloMet = true;
+    if (options.containsKey("sloP99Ms")) {
+      double p99 = (Double) ((JSONObject) report.get("all")).get("p99Ms");
+      sloMet = p99 <= Double.parseDouble(options.get("sloP99Ms"));
+      report.put("sloMet", sloMet);
+    }
+    System.out.println(report.toJSONString());
+    if (options.containsKey("out")) {
+      try (Writer out = new FileWriter(options.get("out"))) {
+        report.writeJSONString(out);
+      }
+    }
+    if (!sloMet)
+      System.exit(1);
+  }
+}
@@ -2,11 +2,11 @@ import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
 import org.json.simple.parser.ParseException;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
@@ -74,10 +74,24 @@ public class PackageManager {
   /**
    * Helper method to get all packages in the graph.
    * 
-   * @return Set<String> of all the packages
+   * The copy is kept so callers may modify the result or hold on to it while the graph changes. It
+   * is built from the sorted index in linear time.
+   * 
+   * @return Set<String> of all the packages, a sorted copy that later changes do not affect
    */
   public Set<String> getAllPackages() {
-    return graph.getAllVertices();
+    return new TreeSet<String>(graph.getAllVertices());
+  }
+
+  /**
+   * Returns the packages whose name matches a glob pattern, for example "@org/*" or "libfoo-*".
+   * '*' matches any number of characters and '?' exactly one.
+   * 
+   * @param pattern - glob pattern
+   * @return List<String> of the matching packages in sorted order
+   */
+  public List<String> getPackagesMatching(String pattern) {
+    return graph.getVerticesMatching(pattern);
   }
 
   /**
@@ -99,33 +113,181 @@ public class PackageManager {
   public List<String> getInstallationOrder(String pkg)
       throws CycleException, PackageNotFoundException {
     // check if package is present
-    if (!graph.getAllVertices().contains(pkg))
+    int root = graph.indexOf(pkg);
+    if (root < 0)
       throw new PackageNotFoundException();
-    // create list of verteces
-    LinkedList<String> verteces = new LinkedList<String>();
-    verteces.add(pkg);
-    // initalize 2nd list for installation order
-    LinkedList<String> order = new LinkedList<String>();
-    order.add(pkg);
-    while (!verteces.isEmpty()) {
-      String temp = verteces.remove(0);// store and remove 1st element in list
-      List<String> dependencyList = graph.getAdjacentVerticesOf(temp);
-      // traverse through dependencies
-      for (String depend : dependencyList) {
-        if (depend.equals(pkg))
-          throw new CycleException();
-        order.addFirst(depend);
-        verteces.add(depend);// add dependent vertex to lists
+    TraversalWorkspace workspace = TraversalWorkspace.acquire(graph.order());
+    try {
+      workspace.nextEpoch();
+      resolve(workspace, root);
+      return outputToList(workspace);
+    } finally {
+      workspace.release();
+    }
+  }
+
+  /**
+   * Depth first traversal from root that appends every reachable, non-excluded vertex to the
+   * workspace output after all of its dependencies, which makes the output a valid installation
+   * order.
+   * 
+   * @param workspace - traversal state, already started with nextEpoch()
+   * @param root      - index of the vertex to start from
+   * @throws CycleException if a cycle is reachable from root
+   */
+  private void resolve(TraversalWorkspace workspace, int root) throws CycleException {
+    if (workspace.isVisited(root) || workspace.isExcluded(root))
+      return;
+    int[] stack = workspace.stack;
+    int[] cursor = workspace.cursor;
+    int top = 0;
+    stack[0] = root;
+    cursor[0] = 0;
+    workspace.visit(root);
+    while (top >= 0) {
+      int vertex = stack[top];
+      List<String> dependencyList = graph.dependenciesAt(vertex);
+      if (cursor[top] < dependencyList.size()) {
+        int depend = graph.indexOf(dependencyList.get(cursor[top]++));
+        if (workspace.isExcluded(depend))
+          continue;
+        if (!workspace.isVisited(depend)) {
+          // descend into the dependency
+          workspace.visit(depend);
+          top++;
+          stack[top] = depend;
+          cursor[top] = 0;
+        } else if (!workspace.isFinished(depend)) {
+          throw new CycleException();// dependency is still on the stack
+        }
+      } else {
+        // all dependencies are placed, vertex can be installed
+        workspace.finish(vertex);
+        top--;
       }
     }
-    for (int i = 0; i < order.size(); i++) {
-      String temp = order.remove(i);
-      while (order.contains(temp))
-        order.remove(temp);
-      order.add(i, temp);
+  }
+
+  /**
+   * Given a package name, returns a list of packages in a valid installation order, following only
+   * the dependencies the options allow. Dependencies that are cut off are never visited.
+   * 
+   * @param pkg     - package to install
+   * @param options - depth limit and filters, see TraversalOptions
+   * @return List<String>, order in which the included packages have to be installed
+   * @throws CycleException           if a cycle is found among the included packages
+   * @throws PackageNotFoundException if the package passed does not exist in the dependency graph.
+   */
+  public List<String> getInstallationOrder(String pkg, TraversalOptions options)
+      throws CycleException, PackageNotFoundException {
+    int root = graph.indexOf(pkg);
+    if (root < 0)
+      throw new PackageNotFoundException();
+    TraversalWorkspace workspace = TraversalWorkspace.acquire(graph.order());
+    try {
+      workspace.nextEpoch();
+      boolean limited = options.getMaxDepth() < Integer.MAX_VALUE;
+      if (limited)
+        visitWithinDepth(workspace, root, options);
+      resolveFiltered(workspace, root, options, limited);
+      return outputToList(workspace);
+    } finally {
+      workspace.release();
     }
-    return order;
   }
+
+  /**
+   * Breadth first traversal from root that visits every vertex within the depth limit that the
+   * filters allow. Breadth first order reaches every vertex at its smallest depth.
+   * 
+   * @param workspace - traversal state, already started with nextEpoch()
+   * @param root      - index of the vertex to start from
+   * @param options   - depth limit and filters
+   */
+  private void visitWithinDepth(TraversalWorkspace workspace, int root, TraversalOptions options) {
+    int[] queue = workspace.queue;
+    int head = 0, tail = 0;
+    queue[tail++] = root;
+    workspace.visit(root);
+    workspace.depth[root] = 0;
+    while (head < tail) {
+      int vertex = queue[head++];
+      if (workspace.depth[vertex] == options.getMaxDepth())
+        continue;
+      String name = graph.vertexAt(vertex);
+      List<String> dependencyList = graph.dependenciesAt(vertex);
+      for (int i = 0; i < dependencyList.size(); i++) {
+        String depend = dependencyList.get(i);
+        int index = graph.indexOf(depend);
+        if (workspace.isVisited(index) || !options.getEdgeFilter().test(name, depend)
+            || !options.getVertexFilter().test(depend))
+          continue;
+        workspace.visit(index);
+        workspace.depth[index] = workspace.depth[vertex] + 1;
+        queue[tail++] = index;
+      }
+    }
+  }
+
+  /**
+   * Same as resolve, but only follows dependencies the options allow. When limited is true, only
+   * verteces already visited by visitWithinDepth are included.
+   * 
+   * @param workspace - traversal state, already started with nextEpoch()
+   * @param root      - index of the vertex to start from
+   * @param options   - filters to apply
+   * @param limited   - whether the depth limit has been applied by visitWithinDepth
+   * @throws CycleException if a cycle is found among the included verteces
+   */
+  private void resolveFiltered(TraversalWorkspace workspace, int root, TraversalOptions options,
+      boolean limited) throws CycleException {
+    int[] stack = workspace.stack;
+    int[] cursor = workspace.cursor;
+    int top = 0;
+    stack[0] = root;
+    cursor[0] = 0;
+    workspace.enter(root);
+    while (top >= 0) {
+      int vertex = stack[top];
+      List<String> dependencyList = graph.dependenciesAt(vertex);
+      if (cursor[top] < dependencyList.size()) {
+        String depend = dependencyList.get(cursor[top]++);
+        int index = graph.indexOf(depend);
+        if (!options.getEdgeFilter().test(graph.vertexAt(vertex), depend))
+          continue;
+        if (!workspace.isEntered(index)) {
+          // only descend into included dependencies
+          if (limited ? !workspace.isVisited(index) : !options.getVertexFilter().test(depend))
+            continue;
+          workspace.enter(index);
+          top++;
+          stack[top] = index;
+          cursor[top] = 0;
+        } else if (!workspace.isFinished(index)) {
+          throw new CycleException();// dependency is still on the stack
+        }
+      } else {
+        // all dependencies are placed, vertex can be installed
+        workspace.finish(vertex);
+        top--;
+      }
+    }
+  }
+
+  /**
+   * Converts the workspace output buffer to a list of package names
+   * 
+   * @param workspace - traversal state holding the output
+   * @return list of package names in output order
+   */
+  private List<String> outputToList(TraversalWorkspace workspace) {
+    List<String> toReturn = new ArrayList<String>(workspace.outputSize);
+    for (int i = 0; i < workspace.outputSize; i++) {
+      toReturn.add(graph.vertexAt(workspace.output[i]));
+    }
+    return toReturn;
+  }
+
   /////// unused code
   /**
    * Private recursive helper for getInstallationOrder
@@ -176,16 +338,23 @@ public class PackageManager {
   public List<String> toInstall(String newPkg, String installedPkg)
       throws CycleException, PackageNotFoundException {
     // see if packages are in the graph
-    if (!(graph.getAllVertices().contains(newPkg) || graph.getAllVertices().contains(installedPkg)))
+    int newRoot = graph.indexOf(newPkg);
+    int installedRoot = graph.indexOf(installedPkg);
+    if (newRoot < 0 || installedRoot < 0)
       throw new PackageNotFoundException();
-    // create list of installed dependencies and needed dependencies
-    List<String> installed = getInstallationOrder(installedPkg);
-    List<String> needed = getInstallationOrder(newPkg);
-    for (String i : installed) {
-      if (needed.contains(i))
-        needed.remove(i);
+    TraversalWorkspace workspace = TraversalWorkspace.acquire(graph.order());
+    try {
+      // mark everything the installed package brought in
+      workspace.nextEpoch();
+      resolve(workspace, installedRoot);
+      workspace.excludeOutput();
+      // resolve the new package without descending into installed packages
+      workspace.nextEpoch();
+      resolve(workspace, newRoot);
+      return outputToList(workspace);
+    } finally {
+      workspace.release();
     }
-    return needed;
   }
 
   /**
@@ -201,26 +370,17 @@ public class PackageManager {
    */
   public List<String> getInstallationOrderForAllPackages()
       throws CycleException, PackageNotFoundException {
-    // collects all verteces into an object arr
-    Object[] toReturn = graph.getAllVertices().toArray();
-    boolean[] visited = new boolean[toReturn.length];
-    List<String> installationOrder = new ArrayList<String>();
-    // traverse through all verteces
-    for (int k = 0; k < toReturn.length; k++) {
-      // check if visited
-      if (!visited[k]) {
-        List<String> order = getInstallationOrder((String) toReturn[k]);
-        Collections.reverse(order); // corrects installation order
-        for (int w = 0; w < order.size(); w++) {
-          if (!installationOrder.contains(order.get(w)) && order.get(w) != null) {
-            installationOrder.add(w, order.get(w));
-          }
-        }
+    TraversalWorkspace workspace = TraversalWorkspace.acquire(graph.order());
+    try {
+      workspace.nextEpoch();
+      // traverse through all verteces, resolve skips the ones already placed
+      for (int k = 0; k < graph.order(); k++) {
+        resolve(workspace, k);
       }
+      return outputToList(workspace);
+    } finally {
+      workspace.release();
     }
-    Collections.reverse(installationOrder);
-    return installationOrder;
-
   }
 
   /**
@@ -253,8 +413,295 @@ public class PackageManager {
     return toReturn;
   }
 
-  public static void main(String[] args) {
-    System.out.println("PackageManager.main()");
+  /**
+   * Returns one valid installation order for every package whose name matches a glob pattern,
+   * together with all of their dependencies. Shared dependencies are resolved once.
+   * 
+   * @param pattern - glob pattern, see getPackagesMatching
+   * @return List<String>, order in which the packages have to be installed
+   * @throws CycleException           if a cycle is reachable from any matching package
+   * @throws PackageNotFoundException if no package matches the pattern
+   */
+  public List<String> getInstallationOrderMatching(String pattern)
+      throws CycleException, PackageNotFoundException {
+    List<String> roots = graph.getVerticesMatching(pattern);
+    if (roots.isEmpty())
+      throw new PackageNotFoundException();
+    TraversalWorkspace workspace = TraversalWorkspace.acquire(graph.order());
+    try {
+      workspace.nextEpoch();
+      for (String root : roots) {
+        resolve(workspace, graph.indexOf(root));
+      }
+      return outputToList(workspace);
+    } finally {
+      workspace.release();
+    }
+  }
+
+  /**
+   * Removes redundant direct dependencies from the graph: a dependency of A on C is dropped when A
+   * already depends on C through another package. Installation orders stay valid.
+   * 
+   * @return number of dependencies removed
+   */
+  public int removeRedundantDependencies() {
+    return graph.transitiveReduction();
+  }
+
+  /**
+   * Compares this package manager's dependency graph with the graph of another, newer one, for
+   * example after loading a new registry snapshot.
+   * 
+   * @param updated - package manager holding the newer graph
+   * @return differences from this graph to the updated graph
+   */
+  public GraphDiff diff(PackageManager updated) {
+    return new GraphDiff(graph, updated.graph);
+  }
+
+  /**
+   * Explains why a package is installed: returns the shortest chain of dependencies leading from
+   * one package to another.
+   * 
+   * For example, refer to shared_dependecies.json - explainDependency("A", "D") returns ["A", "B",
+   * "D"], since A depends on B and B depends on D.
+   * 
+   * @param from - package that pulls in the dependency
+   * @param to   - package that is pulled in
+   * @return List<String>, the dependency chain starting at from and ending at to, or an empty list
+   *         if from does not depend on to
+   * @throws PackageNotFoundException if either package does not exist in the dependency graph.
+   */
+  public List<String> explainDependency(String from, String to) throws PackageNotFoundException {
+    int source = graph.indexOf(from);
+    int target = graph.indexOf(to);
+    if (source < 0 || target < 0)
+      throw new PackageNotFoundException();
+    TraversalWorkspace workspace = TraversalWorkspace.acquire(graph.order());
+    try {
+      if (!shortestPath(workspace, source, target, null, 0))
+        return new ArrayList<String>();
+      return outputToList(workspace);
+    } finally {
+      workspace.release();
+    }
+  }
+
+  /**
+   * Returns up to k distinct dependency chains leading from one package to another, shortest
+   * first. No chain visits a package twice.
+   * 
+   * @param from - package that pulls in the dependency
+   * @param to   - package that is pulled in
+   * @param k    - maximum number of chains to return
+   * @return List<List<String>>, the dependency chains ordered by length, empty if from does not
+   *         depend on to
+   * @throws PackageNotFoundException if either package does not exist in the dependency graph.
+   */
+  public List<List<String>> explainDependency(String from, String to, int k)
+      throws PackageNotFoundException {
+    int source = graph.indexOf(from);
+    int target = graph.indexOf(to);
+    if (source < 0 || target < 0)
+      throw new PackageNotFoundException();
+    List<List<String>> toReturn = new ArrayList<List<String>>();
+    List<int[]> found = new ArrayList<int[]>();
+    List<int[]> candidates = new ArrayList<int[]>();
+    TraversalWorkspace workspace = TraversalWorkspace.acquire(graph.order());
+    try {
+      if (k < 1 || !shortestPath(workspace, source, target, null, 0))
+        return toReturn;
+      // Yen's algorithm: every later chain branches off an earlier one at some spur package
+      found.add(Arrays.copyOf(workspace.output, workspace.outputSize));
+      int[] blocked = new int[1];// at most one blocked edge per chain found so far
+      while (found.size() < k) {
+        int[] previous = found.get(found.size() - 1);
+        if (blocked.length < found.size())
+          blocked = Arrays.copyOf(blocked, found.size() * 2);
+        for (int j = 0; j < previous.length - 1; j++) {
+          // the chain up to the spur may not be revisited
+          workspace.startExclusions();
+          for (int i = 0; i < j; i++) {
+            workspace.exclude(previous[i]);
+          }
+          // edges already taken from the spur by chains sharing this prefix are blocked
+          int blockedCount = 0;
+          for (int[] path : found) {
+            if (path.length > j + 1 && Arrays.equals(path, 0, j + 1, previous, 0, j + 1))
+              blocked[blockedCount++] = path[j + 1];
+          }
+          if (!shortestPath(workspace, previous[j], target, blocked, blockedCount))
+            continue;
+          int[] candidate = new int[j + workspace.outputSize];
+          System.arraycopy(previous, 0, candidate, 0, j);
+          System.arraycopy(workspace.output, 0, candidate, j, workspace.outputSize);
+          if (!containsPath(candidates, candidate) && !containsPath(found, candidate))
+            candidates.add(candidate);
+        }
+        if (candidates.isEmpty())
+          break;
+        // move the shortest candidate over
+        int shortest = 0;
+        for (int i = 1; i < candidates.size(); i++) {
+          if (candidates.get(i).length < candidates.get(shortest).length)
+            shortest = i;
+        }
+        found.add(candidates.remove(shortest));
+      }
+    } finally {
+      workspace.release();
+    }
+    for (int[] path : found) {
+      List<String> names = new ArrayList<String>(path.length);
+      for (int vertex : path) {
+        names.add(graph.vertexAt(vertex));
+      }
+      toReturn.add(names);
+    }
+    return toReturn;
+  }
+
+  /**
+   * Bidirectional breadth first search from source along dependencies and from target along
+   * dependents, expanding the smaller frontier one level at a time. Excluded verteces are skipped.
+   * 
+   * The first vertex reached by both searches lies on a shortest path, so the search stops there
+   * and writes the path into the workspace output.
+   * 
+   * @param workspace    - traversal state
+   * @param source       - index of the first vertex of the path
+   * @param target       - index of the last vertex of the path
+   * @param blocked      - verteces the path may not step to directly from source, may be null
+   * @param blockedCount - number of valid entries in blocked
+   * @return true if a path was found
+   */
+  private boolean shortestPath(TraversalWorkspace workspace, int source, int target,
+      int[] blocked, int blockedCount) {
+    workspace.nextEpoch();
+    if (source == target) {
+      workspace.output[workspace.outputSize++] = source;
+      return true;
+    }
+    int[] forward = workspace.queue;
+    int[] backward = workspace.backQueue;
+    int forwardHead = 0, forwardTail = 0, backwardHead = 0, backwardTail = 0;
+    forward[forwardTail++] = source;
+    workspace.visit(source);
+    workspace.parent[source] = -1;
+    backward[backwardTail++] = target;
+    workspace.backVisit(target);
+    workspace.backParent[target] = -1;
+    int meet = -1;
+    while (meet < 0 && forwardHead < forwardTail && backwardHead < backwardTail) {
+      if (forwardTail - forwardHead <= backwardTail - backwardHead) {
+        // expand one level of dependencies
+        int levelEnd = forwardTail;
+        while (meet < 0 && forwardHead < levelEnd) {
+          int vertex = forward[forwardHead++];
+          List<String> dependencyList = graph.dependenciesAt(vertex);
+          for (int i = 0; i < dependencyList.size(); i++) {
+            int depend = graph.indexOf(dependencyList.get(i));
+            if (workspace.isVisited(depend) || workspace.isExcluded(depend)
+                || (vertex == source && isBlocked(blocked, blockedCount, depend)))
+              continue;
+            workspace.visit(depend);
+            workspace.parent[depend] = vertex;
+            if (workspace.isBackVisited(depend)) {
+              meet = depend;
+              break;
+            }
+            forward[forwardTail++] = depend;
+          }
+        }
+      } else {
+        // expand one level of dependents
+        int levelEnd = backwardTail;
+        while (meet < 0 && backwardHead < levelEnd) {
+          int vertex = backward[backwardHead++];
+          List<String> dependentList = graph.dependentsAt(vertex);
+          for (int i = 0; i < dependentList.size(); i++) {
+            int dependent = graph.indexOf(dependentList.get(i));
+            if (workspace.isBackVisited(dependent) || workspace.isExcluded(dependent)
+                || (dependent == source && isBlocked(blocked, blockedCount, vertex)))
+              continue;
+            workspace.backVisit(dependent);
+            workspace.backParent[dependent] = vertex;
+            if (workspace.isVisited(dependent)) {
+              meet = dependent;
+              break;
+            }
+            backward[backwardTail++] = dependent;
+          }
+        }
+      }
+    }
+    if (meet < 0)
+      return false;
+    // walk back to the source, then forward to the target
+    int depth = 0;
+    for (int vertex = meet; vertex != -1; vertex = workspace.parent[vertex]) {
+      workspace.stack[depth++] = vertex;
+    }
+    while (depth > 0) {
+      workspace.output[workspace.outputSize++] = workspace.stack[--depth];
+    }
+    for (int vertex = workspace.backParent[meet]; vertex != -1;
+        vertex = workspace.backParent[vertex]) {
+      workspace.output[workspace.outputSize++] = vertex;
+    }
+    return true;
+  }
+
+  /*
+   * Checks whether vertex is one of the first count entries of blocked
+   */
+  private static boolean isBlocked(int[] blocked, int count, int vertex) {
+    for (int i = 0; i < count; i++) {
+      if (blocked[i] == vertex)
+        return true;
+    }
+    return false;
+  }
+
+  /*
+   * Checks whether paths already holds a path equal to path
+   */
+  private static boolean containsPath(List<int[]> paths, int[] path) {
+    for (int[] other : paths) {
+      if (Arrays.equals(other, path))
+        return true;
+    }
+    return false;
+  }
+
+  /**
+   * With no arguments, prints a greeting. With a json file, prints the global installation order.
+   * With a json file and --serve, answers queries over localhost until killed, see
+   * ResolutionServer.
+   * 
+   * Usage: java PackageManager [file.json [--serve [port]]]
+   * 
+   * @param args - command line arguments
+   * @throws Exception if the json file cannot be read or the port cannot be bound
+   */
+  public static void main(String[] args) throws Exception {
+    if (args.length == 0) {
+      System.out.println("PackageManager.main()");
+      return;
+    }
+    PackageManager manager = new PackageManager();
+    manager.constructGraph(args[0]);
+    if (args.length > 1 && args[1].equals("--serve")) {
+      int port = args.length > 2 ? Integer.parseInt(args[2]) : 7474;
+      ResolutionServer server =
+          new ResolutionServer(manager, port, Runtime.getRuntime().availableProcessors());
+      server.start();
+      System.out.println("Serving installation orders on localhost:" + server.getPort());
+      Thread.currentThread().join();// run until the process is killed
+    } else {
+      System.out.println(manager.getInstallationOrderForAllPackages());
+    }
   }
 
 }
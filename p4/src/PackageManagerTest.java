@@ -80,4 +80,117 @@ class PackageManagerTest {
     } else
       fail("Package with most depenencies was not returned");
   }
+
+  @Test
+  void test_InstallationOrderPlacesDependenciesFirst() throws CycleException,
+      PackageNotFoundException, FileNotFoundException, IOException, ParseException {
+    manager.constructGraph("shared_dependencies.json");
+    List<String> list = manager.getInstallationOrder("A");
+    assertEquals(4, list.size());
+    assertEquals("A", list.get(3));
+    assertTrue(list.indexOf("D") < list.indexOf("B"));
+    assertTrue(list.indexOf("D") < list.indexOf("C"));
+    // repeated queries reuse the workspace and must give the same answer
+    assertEquals(list, manager.getInstallationOrder("A"));
+  }
+
+  @Test
+  void test_toInstallSkipsInstalledDependencies() throws CycleException,
+      PackageNotFoundException, FileNotFoundException, IOException, ParseException {
+    manager.constructGraph("shared_dependencies.json");
+    List<String> list = manager.toInstall("A", "B");
+    assertEquals(2, list.size());
+    assertEquals("C", list.get(0));
+    assertEquals("A", list.get(1));
+  }
+
+  @Test
+  void test_CycleThrowsException() throws FileNotFoundException, IOException, ParseException {
+    manager.constructGraph("cyclic.json");
+    assertThrows(CycleException.class, () -> manager.getInstallationOrder("A"));
+    assertThrows(CycleException.class, () -> manager.getInstallationOrderForAllPackages());
+  }
+
+  @Test
+  void test_ExplainDependencyShortestChain() throws PackageNotFoundException,
+      FileNotFoundException, IOException, ParseException {
+    manager.constructGraph("shared_dependencies.json");
+    List<String> chain = manager.explainDependency("A", "D");
+    assertEquals(3, chain.size());
+    assertEquals("A", chain.get(0));
+    assertEquals("D", chain.get(2));
+    // D does not depend on A
+    assertTrue(manager.explainDependency("D", "A").isEmpty());
+    assertThrows(PackageNotFoundException.class, () -> manager.explainDependency("A", "Z"));
+  }
+
+  @Test
+  void test_ExplainDependencyAllChains() throws PackageNotFoundException, FileNotFoundException,
+      IOException, ParseException {
+    manager.constructGraph("shared_dependencies.json");
+    List<List<String>> chains = manager.explainDependency("A", "D", 5);
+    // A -> B -> D and A -> C -> D
+    assertEquals(2, chains.size());
+    assertNotEquals(chains.get(0), chains.get(1));
+    assertEquals(3, chains.get(1).size());
+    // k only bounds the answer, it must not size any allocation
+    assertEquals(chains, manager.explainDependency("A", "D", Integer.MAX_VALUE));
+  }
+
+  @Test
+  void test_InstallationOrderWithOptions() throws CycleException, PackageNotFoundException,
+      FileNotFoundException, IOException, ParseException {
+    manager.constructGraph("valid.json");
+    // B depends on C and D
+    List<String> list = manager.getInstallationOrder("E", new TraversalOptions().setMaxDepth(1));
+    assertEquals(List.of("B", "E"), list);
+    list = manager.getInstallationOrder("E",
+        new TraversalOptions().setVertexFilter(pkg -> !pkg.equals("C")));
+    assertEquals(List.of("D", "B", "E"), list);
+    list = manager.getInstallationOrder("A", new TraversalOptions().setMaxDepth(2)
+        .setEdgeFilter((pkg, dependency) -> !dependency.equals("D")));
+    assertEquals(List.of("C", "B", "A"), list);
+  }
+
+  @Test
+  void test_FilterMayNotStartAnotherQuery() throws FileNotFoundException, IOException,
+      ParseException, CycleException, PackageNotFoundException {
+    manager.constructGraph("valid.json");
+    TraversalOptions reentrant = new TraversalOptions().setVertexFilter(pkg -> {
+      try {
+        return manager.getInstallationOrder(pkg).size() > 1;
+      } catch (CycleException | PackageNotFoundException e) {
+        return false;
+      }
+    });
+    assertThrows(IllegalStateException.class, () -> manager.getInstallationOrder("A", reentrant));
+    // the failed query released the workspace
+    assertEquals(List.of("C", "D", "B", "A"), manager.getInstallationOrder("A"));
+    assertThrows(NullPointerException.class, () -> new TraversalOptions().setVertexFilter(null));
+    assertThrows(NullPointerException.class, () -> new TraversalOptions().setEdgeFilter(null));
+  }
+
+  @Test
+  void test_InstallationOrderMatching() throws CycleException, PackageNotFoundException,
+      FileNotFoundException, IOException, ParseException {
+    manager.constructGraph("valid.json");
+    assertEquals(List.of("A", "B", "C", "D", "E"), manager.getPackagesMatching("?"));
+    List<String> list = manager.getInstallationOrderMatching("?");
+    assertEquals(manager.getAllPackages().size(), list.size());
+    assertEquals(List.of("C", "D", "B", "E"), manager.getInstallationOrderMatching("E"));
+    assertThrows(PackageNotFoundException.class, () -> manager.getInstallationOrderMatching("Z*"));
+    assertTrue(manager.getPackagesMatching(null).isEmpty());
+  }
+
+  @Test
+  void test_GetAllPackagesIsASnapshot() throws FileNotFoundException, IOException,
+      ParseException {
+    manager.constructGraph("valid.json");
+    Set<String> packages = manager.getAllPackages();
+    packages.remove("A");
+    assertEquals(5, manager.getAllPackages().size());
+    manager.constructGraph("cyclic.json");
+    // iterating the old answer while the graph has grown is safe
+    assertEquals(4, packages.stream().count());
+  }
 }
@@ -0,0 +1,259 @@
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+/**
+ * Filename: RegistryGenerator.java Project: p4 Authors: Elijah Asher
+ *
+ * Builds synthetic package registries in the same json format as valid.json, for load testing at
+ * scale. A registry is assembled from blocks of different shapes:
+ *
+ * power law - many packages with a few dependencies each and a few with very many, pointing mostly
+ * at a small set of popular packages
+ *
+ * chain - a single long line of dependencies
+ *
+ * diamond - levels of packages that all depend on every package of the next level
+ *
+ * fixture - copies of a small registry file such as shared_dependencies.json or cyclic.json
+ *
+ * Blocks only depend on themselves and on blocks added before them, so the registry has no cycles
+ * until addCycles() is called or a cyclic fixture is added. The same seed always builds the same
+ * registry.
+ *
+ * Run on its own, it scales the fixtures of this directory up: java RegistryGenerator [copies]
+ * writes valid_large.json, shared_dependencies_large.json and cyclic_large.json.
+ */
+public class RegistryGenerator {
+  private Random random;// source of all random choices
+  private List<Package> packages;// packages generated so far
+  private int blocks;// number of blocks added, used to keep names unique
+
+  /**
+   * Constructor
+   *
+   * @param seed - seed of the random choices
+   */
+  public RegistryGenerator(long seed) {
+    random = new Random(seed);
+    packages = new ArrayList<Package>();
+  }
+
+  public List<Package> getPackages() {
+    return packages;
+  }
+
+  /**
+   * Adds packages whose number of dependencies follows a power law, capped at maxFanOut.
+   * Dependencies favour the last packages of the block, which play the role of popular libraries.
+   *
+   * @param count     - number of packages to add
+   * @param maxFanOut - most dependencies a single package may have
+   * @return this
+   */
+  public RegistryGenerator addPowerLaw(int count, int maxFanOut) {
+    String prefix = "lib" + blocks++ + "-";
+    int first = packages.size();
+    for (int i = 0; i < count; i++) {
+      Set<String> dependencies = new LinkedHashSet<String>();
+      int later = count - 1 - i;
+      // pareto distributed, most packages get 0 to 2 dependencies
+      int fanOut = (int) Math.min(Math.min(maxFanOut, later),
+          Math.floor(Math.pow(1 - random.nextDouble(), -1 / 1.2)) - 1);
+      for (int k = 0; k < fanOut; k++) {
+        int target = count - 1 - (int) (later * Math.pow(random.nextDouble(), 3));
+        dependencies.add(prefix + target);
+      }
+      packages.add(new Package(prefix + i, dependencies.toArray(new String[0])));
+    }
+    linkToEarlier(first, count);
+    return this;
+  }
+
+  /**
+   * Adds a chain of packages, each depending on the next one.
+   *
+   * @param length - number of packages in the chain
+   * @return this
+   */
+  public RegistryGenerator addChain(int length) {
+    String prefix = "chain" + blocks++ + "-";
+    int first = packages.size();
+    for (int i = 0; i < length; i++) {
+      String[] dependencies = i + 1 < length ? new String[] {prefix + (i + 1)} : new String[0];
+      packages.add(new Package(prefix + i, dependencies));
+    }
+    linkToEarlier(first, length);
+    return this;
+  }
+
+  /**
+   * Adds a stack of diamonds: every package of a level depends on every package of the next level,
+   * so the same dependencies are reached through width^levels different paths.
+   *
+   * @param width  - packages per level
+   * @param levels - number of levels
+   * @return this
+   */
+  public RegistryGenerator addDiamonds(int width, int levels) {
+    String prefix = "diamond" + blocks++ + "-";
+    int first = packages.size();
+    for (int level = 0; level < levels; level++) {
+      for (int i = 0; i < width; i++) {
+        String[] dependencies = new String[level + 1 < levels ? width : 0];
+        for (int k = 0; k < dependencies.length; k++) {
+          dependencies[k] = prefix + (level + 1) + "-" + k;
+        }
+        packages.add(new Package(prefix + level + "-" + i, dependencies));
+      }
+    }
+    linkToEarlier(first, width * levels);
+    return this;
+  }
+
+  /**
+   * Adds copies of a registry file, each with its package names prefixed so the copies stay
+   * apart. Packages that are only named as a dependency in the file are added as packages without
+   * dependencies, which then hang below earlier copies like the other blocks.
+   *
+   * @param path   - json registry in the format of valid.json
+   * @param copies - number of copies to add
+   * @return this
+   * @throws IOException    if the file cannot be read
+   * @throws ParseException if the file is not valid json
+   */
+  public RegistryGenerator addFixture(String path, int copies) throws IOException, ParseException {
+    Map<String, List<String>> fixture = new LinkedHashMap<String, List<String>>();
+    try (Reader in = new FileReader(path)) {
+      JSONArray array = (JSONArray) ((JSONObject) new JSONParser().parse(in)).get("packages");
+      for (Object entry : array) {
+        List<String> dependencies = new ArrayList<String>();
+        for (Object dependency : (JSONArray) ((JSONObject) entry).get("dependencies")) {
+          dependencies.add((String) dependency);
+        }
+        fixture.put((String) ((JSONObject) entry).get("name"), dependencies);
+      }
+    }
+    for (List<String> dependencies : new ArrayList<List<String>>(fixture.values())) {
+      for (String dependency : dependencies) {
+        fixture.putIfAbsent(dependency, new ArrayList<String>());
+      }
+    }
+    String name = new File(path).getName().replace(".json", "");
+    for (int copy = 0; copy < copies; copy++) {
+      String prefix = name + blocks++ + "/";
+      int first = packages.size();
+      for (Map.Entry<String, List<String>> entry : fixture.entrySet()) {
+        String[] dependencies = new String[entry.getValue().size()];
+        for (int k = 0; k < dependencies.length; k++) {
+          dependencies[k] = prefix + entry.getValue().get(k);
+        }
+        packages.add(new Package(prefix + entry.getKey(), dependencies));
+      }
+      linkToEarlier(first, fixture.size());
+    }
+    return this;
+  }
+
+  /**
+   * Injects cycles by making a dependency of a random package depend back on that package.
+   *
+   * @param count - number of cycles to inject
+   * @return this
+   */
+  public RegistryGenerator addCycles(int count) {
+    for (int injected = 0, tries = 0; injected < count && tries < count * 100; tries++) {
+      Package pkg = packages.get(random.nextInt(packages.size()));
+      if (pkg.getDependencies().length == 0)
+        continue;
+      String dependency = pkg.getDependencies()[random.nextInt(pkg.getDependencies().length)];
+      for (Package target : packages) {
+        if (target.getName().equals(dependency)) {
+          addDependency(target, pkg.getName());
+          injected++;
+          break;
+        }
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Writes the registry to a json file that PackageManager.constructGraph can read.
+   *
+   * @param path - file to write
+   * @throws IOException if the file cannot be written
+   */
+  @SuppressWarnings("unchecked")
+  public void write(String path) throws IOException {
+    JSONArray array = new JSONArray();
+    for (Package pkg : packages) {
+      JSONObject object = new JSONObject();
+      JSONArray dependencies = new JSONArray();
+      for (String dependency : pkg.getDependencies()) {
+        dependencies.add(dependency);
+      }
+      object.put("name", pkg.getName());
+      object.put("dependencies", dependencies);
+      array.add(object);
+    }
+    JSONObject registry = new JSONObject();
+    registry.put("packages", array);
+    try (Writer out = new FileWriter(path)) {
+      registry.writeJSONString(out);
+    }
+  }
+
+  /*
+   * Gives the packages of a new block without dependencies a dependency on a random package added
+   * before the block, so blocks hang below each other like a real registry
+   */
+  private void linkToEarlier(int first, int count) {
+    if (first == 0)
+      return;
+    for (int i = first; i < first + count; i++) {
+      Package pkg = packages.get(i);
+      if (pkg.getDependencies().length == 0)
+        addDependency(pkg, packages.get(random.nextInt(first)).getName());
+    }
+  }
+
+  /*
+   * Appends a dependency to a package
+   */
+  private static void addDependency(Package pkg, String dependency) {
+    String[] dependencies = new String[pkg.getDependencies().length + 1];
+    System.arraycopy(pkg.getDependencies(), 0, dependencies, 0, dependencies.length - 1);
+    dependencies[dependencies.length - 1] = dependency;
+    pkg.setDependencies(dependencies);
+  }
+
+  /**
+   * Writes scaled up copies of valid.json, shared_dependencies.json and cyclic.json next to them.
+   *
+   * @param args - optional number of copies of each fixture, default 2000
+   * @throws Exception if a fixture cannot be read or written
+   */
+  public static void main(String[] args) throws Exception {
+    int copies = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+    for (String fixture : new String[] {"valid", "shared_dependencies", "cyclic"}) {
+      RegistryGenerator generator = new RegistryGenerator(1).addFixture(fixture + ".json", copies);
+      generator.write(fixture + "_large.json");
+      System.out.println(fixture + "_large.json: " + generator.getPackages().size() + " packages");
+    }
+  }
+}
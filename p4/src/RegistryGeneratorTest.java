@@ -0,0 +1,76 @@
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.File;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Filename: RegistryGeneratorTest.java Project: p4 Authors: Elijah Asher
+ * 
+ * Tests that generated registries load into a PackageManager and keep their shape.
+ */
+class RegistryGeneratorTest {
+  File registry;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    registry = File.createTempFile("registry", ".json");
+    registry.deleteOnExit();
+  }
+
+  @Test
+  void test_AcyclicRegistryLoads() throws Exception {
+    RegistryGenerator generator = new RegistryGenerator(7).addPowerLaw(500, 40).addChain(200)
+        .addDiamonds(4, 10);
+    generator.write(registry.getPath());
+    PackageManager manager = new PackageManager();
+    manager.constructGraph(registry.getPath());
+    assertEquals(generator.getPackages().size(), manager.getAllPackages().size());
+    List<String> order = manager.getInstallationOrderForAllPackages();
+    assertEquals(manager.getAllPackages().size(), order.size());
+    // the head of the chain depends on the whole chain
+    assertTrue(manager.getInstallationOrder("chain1-0").size() > 200);
+  }
+
+  @Test
+  void test_InjectedCyclesAreFound() throws Exception {
+    new RegistryGenerator(7).addPowerLaw(500, 40).addCycles(3).write(registry.getPath());
+    PackageManager manager = new PackageManager();
+    manager.constructGraph(registry.getPath());
+    assertThrows(CycleException.class, () -> manager.getInstallationOrderForAllPackages());
+  }
+
+  @Test
+  void test_FixtureCopiesKeepTheirShape() throws Exception {
+    new RegistryGenerator(7).addFixture("shared_dependencies.json", 50).write(registry.getPath());
+    PackageManager manager = new PackageManager();
+    manager.constructGraph(registry.getPath());
+    // D is only named as a dependency, it is still copied
+    assertEquals(200, manager.getAllPackages().size());
+    List<String> order = manager.getInstallationOrder("shared_dependencies0/A");
+    assertEquals(List.of("shared_dependencies0/D", "shared_dependencies0/B",
+        "shared_dependencies0/C", "shared_dependencies0/A"), order);
+    assertTrue(manager.getInstallationOrder("shared_dependencies49/A").size() > 4);
+    new RegistryGenerator(7).addFixture("cyclic.json", 3).write(registry.getPath());
+    manager.constructGraph(registry.getPath());
+    assertThrows(CycleException.class, () -> manager.getInstallationOrder("cyclic2/A"));
+  }
+
+  @Test
+  void test_GeneratedRegistryHasRequestedSize() throws Exception {
+    for (int packages : new int[] {1000, 4321, 20000}) {
+      assertEquals(packages, LoadTest.generate(packages, 5, 1).getPackages().size());
+    }
+  }
+
+  @Test
+  void test_SameSeedSameRegistry() throws Exception {
+    List<Package> first = LoadTest.generate(1000, 2, 3).getPackages();
+    List<Package> second = LoadTest.generate(1000, 2, 3).getPackages();
+    assertEquals(first.size(), second.size());
+    for (int i = 0; i < first.size(); i++) {
+      assertEquals(first.get(i).getName(), second.get(i).getName());
+      assertArrayEquals(first.get(i).getDependencies(), second.get(i).getDependencies());
+    }
+  }
+}
@@ -0,0 +1,236 @@
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Filename: ResolutionServer.java Project: p4 Authors: Elijah Asher
+ *
+ * Serves installation order queries for a PackageManager over a plain text socket on localhost.
+ *
+ * Each request is one line and gets one line back:
+ *
+ * ORDER pkg - getInstallationOrder(pkg)
+ *
+ * INSTALL newPkg installedPkg - toInstall(newPkg, installedPkg)
+ *
+ * Answers are "OK " followed by the comma separated packages, or "ERR " followed by the reason.
+ *
+ * Identical requests that are in flight at the same time are computed once and the answer is
+ * shared. Requests waiting to be computed sit in a queue that a fixed set of resolver threads
+ * drain: each resolver takes its share of the waiting requests at once and answers them one by
+ * one, so a burst is spread over all of them. A request that fails, even with an Error, is answered
+ * with "ERR resolver failed" and the resolver moves on to the next one. Connections are handled on
+ * virtual threads when the runtime has them, otherwise on a cached thread pool.
+ *
+ * The dependency graph must not be changed while the server is running.
+ */
+public class ResolutionServer implements Closeable {
+  private static final int MAX_DRAIN = 256;// most requests a resolver takes at once
+
+  private PackageManager manager;// answers the queries
+  private ServerSocket serverSocket;// accepts connections on localhost
+  private ExecutorService connections;// runs one task per connection
+  private List<Thread> resolvers;// threads that drain the pending requests
+  private BlockingQueue<String> pending;// requests waiting for a resolver
+  private ConcurrentHashMap<String, CompletableFuture<String>> inFlight;// request -> answer
+  private volatile boolean running;// false once close() is called
+
+  /**
+   * Constructor, binds the server to the given port on the loopback address.
+   *
+   * @param manager   - package manager with its graph already constructed
+   * @param port      - port to listen on, 0 picks a free port
+   * @param resolvers - number of threads computing requests
+   * @throws IOException if the port cannot be bound
+   */
+  public ResolutionServer(PackageManager manager, int port, int resolvers) throws IOException {
+    this.manager = manager;
+    this.serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+    this.connections = newConnectionExecutor();
+    this.resolvers = new ArrayList<Thread>();
+    this.pending = new LinkedBlockingQueue<String>();
+    this.inFlight = new ConcurrentHashMap<String, CompletableFuture<String>>();
+    for (int i = 0; i < resolvers; i++) {
+      Thread resolver = new Thread(this::drainPending, "resolver-" + i);
+      resolver.setDaemon(true);
+      this.resolvers.add(resolver);
+    }
+  }
+
+  /**
+   * Starts the resolver threads and accepts connections until close() is called.
+   */
+  public void start() {
+    running = true;
+    for (Thread resolver : resolvers) {
+      resolver.start();
+    }
+    Thread acceptor = new Thread(this::acceptConnections, "resolution-server");
+    acceptor.setDaemon(true);
+    acceptor.start();
+  }
+
+  /**
+   * Returns the port the server listens on
+   *
+   * @return local port
+   */
+  public int getPort() {
+    return serverSocket.getLocalPort();
+  }
+
+  /**
+   * Answers a single request line. Concurrent calls with the same request share one computation.
+   * Before start() and after close() every request is answered with an error.
+   *
+   * @param request - request line, see the class comment
+   * @return answer line
+   */
+  public String submit(String request) {
+    if (!running)
+      return "ERR server closed";
+    String key = request.trim().replaceAll("\\s+", " ");
+    CompletableFuture<String> answer = inFlight.computeIfAbsent(key, k -> {
+      pending.add(k);
+      return new CompletableFuture<String>();
+    });
+    // close() may have swept inFlight between the check above and the insert
+    if (!running)
+      answer.complete("ERR server closed");
+    try {
+      return answer.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return "ERR interrupted";
+    } catch (ExecutionException e) {
+      return "ERR " + e.getCause().getMessage();
+    }
+  }
+
+  /**
+   * Stops accepting connections and stops the resolvers. Requests still waiting are answered with
+   * an error.
+   */
+  public void close() throws IOException {
+    running = false;
+    serverSocket.close();
+    connections.shutdownNow();
+    for (Thread resolver : resolvers) {
+      resolver.interrupt();
+    }
+    for (CompletableFuture<String> answer : inFlight.values()) {
+      answer.complete("ERR server closed");
+    }
+  }
+
+  /*
+   * Accept loop, hands every connection to its own task
+   */
+  private void acceptConnections() {
+    while (running) {
+      try {
+        Socket socket = serverSocket.accept();
+        connections.execute(() -> serve(socket));
+      } catch (IOException e) {
+        // socket was closed by close(), or the connection failed before it was handed off
+      }
+    }
+  }
+
+  /*
+   * Reads request lines from one connection and writes back the answers
+   */
+  private void serve(Socket socket) {
+    try (Socket s = socket;
+        BufferedReader in = new BufferedReader(
+            new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+        PrintWriter out = new PrintWriter(s.getOutputStream(), true, StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = in.readLine()) != null) {
+        if (!line.isBlank())
+          out.println(submit(line));
+      }
+    } catch (IOException e) {
+      // client went away, nothing left to answer
+    }
+  }
+
+  /*
+   * Resolver loop: waits for a request, then takes its share of whatever else has arrived and
+   * answers those requests one by one. Leaving the rest in the queue lets the other resolvers
+   * pick it up. A failing request is answered with an error and does not stop the resolver.
+   */
+  private void drainPending() {
+    List<String> taken = new ArrayList<String>(MAX_DRAIN);
+    while (running) {
+      try {
+        taken.add(pending.take());
+      } catch (InterruptedException e) {
+        return;
+      }
+      int share = Math.min(MAX_DRAIN - 1, pending.size() / resolvers.size());
+      pending.drainTo(taken, share);
+      for (String key : taken) {
+        // later identical requests start a new computation from here on
+        CompletableFuture<String> answer = inFlight.remove(key);
+        try {
+          answer.complete(answer(key));
+        } catch (Throwable e) {
+          answer.completeExceptionally(new IllegalStateException("resolver failed", e));
+        }
+      }
+      taken.clear();
+    }
+  }
+
+  /*
+   * Computes the answer line for a request
+   */
+  private String answer(String request) {
+    String[] parts = request.split(" ");
+    try {
+      if (parts.length == 2 && parts[0].equals("ORDER"))
+        return "OK " + String.join(",", manager.getInstallationOrder(parts[1]));
+      if (parts.length == 3 && parts[0].equals("INSTALL"))
+        return "OK " + String.join(",", manager.toInstall(parts[1], parts[2]));
+      return "ERR bad request";
+    } catch (CycleException e) {
+      return "ERR cycle";
+    } catch (PackageNotFoundException e) {
+      return "ERR package not found";
+    } catch (RuntimeException e) {
+      return "ERR " + e;
+    }
+  }
+
+  /*
+   * Virtual thread per task executor if the runtime provides one, cached thread pool otherwise
+   */
+  private static ExecutorService newConnectionExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+          .invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(task);
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+  }
+}
@@ -0,0 +1,91 @@
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Filename: ResolutionServerTest.java Project: p4 Authors: Elijah Asher
+ * 
+ * Tests the resolution server through both its socket and submit().
+ */
+class ResolutionServerTest {
+  ResolutionServer server;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    PackageManager manager = new PackageManager();
+    manager.constructGraph("shared_dependencies.json");
+    server = new ResolutionServer(manager, 0, 2);
+    server.start();
+  }
+
+  @AfterEach
+  public void tearDown() throws Exception {
+    server.close();
+  }
+
+  @Test
+  void test_AnswersOverSocket() throws Exception {
+    try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+        PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+        BufferedReader in =
+            new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+      out.println("INSTALL A B");
+      assertEquals("OK C,A", in.readLine());
+      out.println("ORDER Z");
+      assertEquals("ERR package not found", in.readLine());
+      out.println("UNKNOWN");
+      assertEquals("ERR bad request", in.readLine());
+    }
+  }
+
+  @Test
+  void test_ConcurrentIdenticalRequests() throws Exception {
+    ExecutorService clients = Executors.newFixedThreadPool(8);
+    List<Future<String>> answers = new ArrayList<Future<String>>();
+    for (int i = 0; i < 200; i++) {
+      answers.add(clients.submit(() -> server.submit("ORDER  A")));
+    }
+    String expected = server.submit("ORDER A");
+    for (Future<String> answer : answers) {
+      assertEquals(expected, answer.get());
+    }
+    clients.shutdown();
+  }
+
+  @Test
+  void test_SubmitAfterCloseDoesNotBlock() throws Exception {
+    server.close();
+    assertEquals("ERR server closed", server.submit("ORDER A"));
+  }
+
+  @Test
+  void test_FailedRequestKeepsResolverAlive() throws Exception {
+    PackageManager failing = new PackageManager() {
+      @Override
+      public List<String> getInstallationOrder(String pkg) {
+        throw new StackOverflowError();
+      }
+    };
+    try (ResolutionServer broken = new ResolutionServer(failing, 0, 2)) {
+      broken.start();
+      // more failures than there are resolvers
+      for (int i = 0; i < 5; i++) {
+        assertEquals("ERR resolver failed", broken.submit("ORDER A" + i));
+      }
+      // the resolvers are all still serving
+      assertEquals("ERR bad request", broken.submit("UNKNOWN"));
+      assertEquals("ERR bad request", broken.submit("UNKNOWN TOO"));
+    }
+  }
+}
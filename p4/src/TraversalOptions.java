@@ -0,0 +1,79 @@
+import java.util.Objects;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
+
+/**
+ * Filename: TraversalOptions.java Project: p4 Authors: Elijah Asher
+ * 
+ * Limits which dependencies a traversal follows. Dependencies are pruned while traversing, so
+ * anything cut off is never visited.
+ * 
+ * The package a traversal starts from is always included. Setters return this options object so
+ * they can be chained.
+ * 
+ * Filters run in the middle of a traversal and must not call back into the PackageManager on the
+ * same thread; doing so throws IllegalStateException.
+ */
+public class TraversalOptions {
+  private int maxDepth;// deepest dependency level to follow, direct dependencies are level 1
+  private Predicate<String> vertexFilter;// packages that may be included
+  private BiPredicate<String, String> edgeFilter;// (package, dependency) pairs that may be followed
+
+  /*
+   * Default no-argument constructor, follows every dependency
+   */
+  public TraversalOptions() {
+    maxDepth = Integer.MAX_VALUE;
+    vertexFilter = pkg -> true;
+    edgeFilter = (pkg, dependency) -> true;
+  }
+
+  public int getMaxDepth() {
+    return maxDepth;
+  }
+
+  public Predicate<String> getVertexFilter() {
+    return vertexFilter;
+  }
+
+  public BiPredicate<String, String> getEdgeFilter() {
+    return edgeFilter;
+  }
+
+  /**
+   * Only follow dependencies up to the given level. 0 includes only the starting package, 1 its
+   * direct dependencies, and so on.
+   * 
+   * @param maxDepth - deepest dependency level to include
+   * @return this
+   */
+  public TraversalOptions setMaxDepth(int maxDepth) {
+    this.maxDepth = Math.max(0, maxDepth);
+    return this;
+  }
+
+  /**
+   * Only include packages the filter accepts. Dependencies of rejected packages are not followed
+   * through them.
+   * 
+   * @param vertexFilter - tested with a package name
+   * @return this
+   * @throws NullPointerException if vertexFilter is null
+   */
+  public TraversalOptions setVertexFilter(Predicate<String> vertexFilter) {
+    this.vertexFilter = Objects.requireNonNull(vertexFilter, "vertexFilter");
+    return this;
+  }
+
+  /**
+   * Only follow dependencies the filter accepts.
+   * 
+   * @param edgeFilter - tested with a package name and the name of one of its dependencies
+   * @return this
+   * @throws NullPointerException if edgeFilter is null
+   */
+  public TraversalOptions setEdgeFilter(BiPredicate<String, String> edgeFilter) {
+    this.edgeFilter = Objects.requireNonNull(edgeFilter, "edgeFilter");
+    return this;
+  }
+}
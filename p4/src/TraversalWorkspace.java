@@ -0,0 +1,178 @@
+import java.util.Arrays;
+
+/**
+ * Filename: TraversalWorkspace.java Project: p4 Authors: Elijah Asher
+ *
+ * Reusable scratch space for graph traversals. Verteces are referred to by their position in the
+ * graph (see Graph.indexOf) so a traversal only touches int arrays.
+ *
+ * Visited marks are stamped with an epoch instead of booleans, so starting a new traversal is a
+ * single increment rather than clearing every array. Each thread gets its own workspace, so a
+ * workspace must never be handed to another thread.
+ *
+ * A query holds the workspace from acquire() to release(). Code that runs during a query, such as
+ * a TraversalOptions filter, may not start another query on the same thread: it would overwrite
+ * the running traversal, so acquire() throws instead.
+ */
+class TraversalWorkspace {
+  private static final ThreadLocal<TraversalWorkspace> LOCAL =
+      ThreadLocal.withInitial(TraversalWorkspace::new);
+
+  int[] stack;// verteces currently on the dfs stack
+  int[] cursor;// index of the next dependency to visit for each stack entry
+  int[] queue;// bfs queue of verteces
+  int[] backQueue;// bfs queue for the backward half of a bidirectional search
+  int[] parent;// vertex each vertex was reached from
+  int[] backParent;// vertex each vertex was reached from in the backward search
+  int[] depth;// number of edges from the start of a bfs to each vertex
+  int[] output;// verteces produced by the traversal, in order
+  int outputSize;// number of valid entries in output
+
+  private int[] visited;// epoch at which each vertex was first reached
+  private int[] backVisited;// epoch at which each vertex was reached by the backward search
+  private int[] entered;// epoch at which a second pass over the visited verteces reached each one
+  private int[] finished;// epoch at which each vertex was fully explored
+  private int[] excluded;// exclusion stamp of each excluded vertex
+  private int epoch;// current traversal
+  private int exclusionStamp;// current exclusion set
+  private boolean excluding;// whether the exclusion set is active
+  private boolean inUse;// whether a query on this thread holds the workspace
+
+  private TraversalWorkspace() {
+    allocate(16);
+  }
+
+  /**
+   * Returns the calling thread's workspace, grown to hold a graph of the given order. The caller
+   * must call release() when done, normally in a finally block.
+   *
+   * @param order number of verteces in the graph to be traversed
+   * @return workspace confined to the calling thread
+   * @throws IllegalStateException if a query on this thread already holds the workspace
+   */
+  static TraversalWorkspace acquire(int order) {
+    TraversalWorkspace workspace = LOCAL.get();
+    if (workspace.inUse)
+      throw new IllegalStateException(
+          "a package query was started from inside another query on the same thread");
+    if (workspace.visited.length < order)
+      workspace.allocate(Math.max(order, workspace.visited.length * 2));
+    workspace.inUse = true;
+    return workspace;
+  }
+
+  /**
+   * Hands the workspace back after a query and drops any exclusions it made.
+   */
+  void release() {
+    excluding = false;
+    inUse = false;
+  }
+
+  /**
+   * Starts a new traversal. All verteces become unvisited and the output buffer is emptied.
+   * Exclusions are kept until the workspace is released.
+   */
+  void nextEpoch() {
+    outputSize = 0;
+    if (++epoch == Integer.MAX_VALUE) {
+      // stamps are about to wrap, start over from a clean slate
+      Arrays.fill(visited, 0);
+      Arrays.fill(backVisited, 0);
+      Arrays.fill(entered, 0);
+      Arrays.fill(finished, 0);
+      epoch = 1;
+    }
+  }
+
+  boolean isVisited(int vertex) {
+    return visited[vertex] == epoch;
+  }
+
+  void visit(int vertex) {
+    visited[vertex] = epoch;
+  }
+
+  boolean isBackVisited(int vertex) {
+    return backVisited[vertex] == epoch;
+  }
+
+  void backVisit(int vertex) {
+    backVisited[vertex] = epoch;
+  }
+
+  boolean isEntered(int vertex) {
+    return entered[vertex] == epoch;
+  }
+
+  void enter(int vertex) {
+    entered[vertex] = epoch;
+  }
+
+  boolean isFinished(int vertex) {
+    return finished[vertex] == epoch;
+  }
+
+  /**
+   * Marks a vertex as fully explored and appends it to the output buffer.
+   *
+   * @param vertex the finished vertex
+   */
+  void finish(int vertex) {
+    finished[vertex] = epoch;
+    output[outputSize++] = vertex;
+  }
+
+  /**
+   * Starts a new, empty exclusion set. Excluded verteces are skipped by traversals until the
+   * workspace is released.
+   */
+  void startExclusions() {
+    excluding = true;
+    if (++exclusionStamp == Integer.MAX_VALUE) {
+      Arrays.fill(excluded, 0);
+      exclusionStamp = 1;
+    }
+  }
+
+  void exclude(int vertex) {
+    excluded[vertex] = exclusionStamp;
+  }
+
+  /**
+   * Starts a new exclusion set holding every vertex in the output buffer.
+   */
+  void excludeOutput() {
+    startExclusions();
+    for (int i = 0; i < outputSize; i++) {
+      excluded[output[i]] = exclusionStamp;
+    }
+  }
+
+  boolean isExcluded(int vertex) {
+    return excluding && excluded[vertex] == exclusionStamp;
+  }
+
+  /*
+   * Replaces all arrays with arrays of the given capacity. Stamps are reset along with them.
+   */
+  private void allocate(int capacity) {
+    stack = new int[capacity];
+    cursor = new int[capacity];
+    queue = new int[capacity];
+    backQueue = new int[capacity];
+    parent = new int[capacity];
+    backParent = new int[capacity];
+    depth = new int[capacity];
+    output = new int[capacity];
+    visited = new int[capacity];
+    backVisited = new int[capacity];
+    entered = new int[capacity];
+    finished = new int[capacity];
+    excluded = new int[capacity];
+    outputSize = 0;
+    exclusionStamp = 0;
+    excluding = false;
+    epoch = 0;
+  }
+}